@@ -0,0 +1,64 @@
+package analysis.benchmarks;
+
+import datastructures.interfaces.IDictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import search.misc.DictionaryBackend;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures 'put' and 'get' on each dictionary the analyzers can use, doing what the
+ * analyzers do with them: counting how often each word appears, then looking the counts
+ * back up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBenchmark {
+    @Param({"1000", "100000"})
+    public int numWords;
+
+    @Param({"CHAINED", "OPEN_ADDRESSING"})
+    public DictionaryBackend backend;
+
+    private String[] words;
+    private IDictionary<String, Integer> counts;
+
+    @Setup
+    public void setup() {
+        this.words = SyntheticCorpus.randomWords(new Random(SyntheticCorpus.SEED), this.numWords);
+        this.counts = this.put();
+    }
+
+    @Benchmark
+    public IDictionary<String, Integer> put() {
+        IDictionary<String, Integer> dictionary = this.backend.newDictionary();
+        for (String word : this.words) {
+            dictionary.put(word, dictionary.getOrDefault(word, 0) + 1);
+        }
+        return dictionary;
+    }
+
+    @Benchmark
+    public long get() {
+        long total = 0;
+        for (String word : this.words) {
+            total += this.counts.get(word);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,63 @@
+package analysis.benchmarks;
+
+import datastructures.concrete.ArrayHeap;
+import datastructures.interfaces.IPriorityQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long ArrayHeap takes to insert a batch of random numbers and remove them
+ * all again in sorted order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Integer[] values;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SyntheticCorpus.SEED);
+        this.values = new Integer[this.size];
+        for (int i = 0; i < this.size; i++) {
+            this.values[i] = random.nextInt();
+        }
+    }
+
+    @Benchmark
+    public IPriorityQueue<Integer> insert() {
+        IPriorityQueue<Integer> heap = new ArrayHeap<>();
+        for (Integer value : this.values) {
+            heap.insert(value);
+        }
+        return heap;
+    }
+
+    @Benchmark
+    public long insertThenRemoveMin() {
+        IPriorityQueue<Integer> heap = this.insert();
+        long total = 0;
+        while (heap.size() > 0) {
+            total += heap.removeMin();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,50 @@
+package analysis.benchmarks;
+
+import datastructures.interfaces.ISet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import search.SearchEngine;
+import search.analyzers.PageRankAnalyzer;
+import search.index.DocumentRegistry;
+import search.models.Webpage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to compute the page rank of every page of a synthetic
+ * corpus, with the same parameters the search engine uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageRankBenchmark {
+    @Param({"1000", "10000"})
+    public int numPages;
+
+    private ISet<Webpage> pages;
+    private DocumentRegistry registry;
+
+    @Setup
+    public void setup() {
+        this.pages = SyntheticCorpus.makeWebpages(this.numPages);
+        this.registry = new DocumentRegistry(this.pages);
+    }
+
+    @Benchmark
+    public PageRankAnalyzer construct() {
+        return new PageRankAnalyzer(this.pages, this.registry, SearchEngine.PAGE_RANK_DECAY,
+                SearchEngine.PAGE_RANK_EPSILON, SearchEngine.PAGE_RANK_ITERATION_LIMIT);
+    }
+}
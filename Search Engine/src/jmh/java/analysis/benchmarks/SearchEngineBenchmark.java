@@ -0,0 +1,89 @@
+package analysis.benchmarks;
+
+import datastructures.interfaces.IList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import search.SearchEngine;
+import search.models.Result;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures answering queries end to end with a SearchEngine over a synthetic corpus,
+ * written out as HTML files and loaded the same way as real data.
+ *
+ * 'distinctQueries' cycles through more queries than the result cache holds, so every
+ * query is scored from scratch; 'repeatedQuery' asks the same query every time, so
+ * every query after the first is answered from the cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchEngineBenchmark {
+    private static final int NUM_QUERIES = 4 * SearchEngine.QUERY_CACHE_SIZE;
+    private static final int WORDS_PER_QUERY = 3;
+    private static final int K = 20;
+
+    @Param({"1000", "5000"})
+    public int numPages;
+
+    private Path folder;
+    private SearchEngine engine;
+    private IList<String>[] queries;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws IOException {
+        this.folder = Files.createTempDirectory("search-engine-benchmark");
+        Path pages = Files.createDirectory(this.folder.resolve("pages"));
+        SyntheticCorpus.writeHtmlPages(pages, this.numPages);
+        this.engine = new SearchEngine(pages, this.folder.resolve("pages" + SearchEngine.INDEX_FILE_EXTENSION));
+
+        Random random = new Random(SyntheticCorpus.SEED);
+        this.queries = (IList<String>[]) new IList[NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            this.queries[i] = SyntheticCorpus.randomQuery(random, WORDS_PER_QUERY);
+        }
+        this.next = 0;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(this.folder)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public IList<Result> distinctQueries() {
+        this.next = (this.next + 1) % NUM_QUERIES;
+        return this.engine.getTopKResults(this.queries[this.next], K);
+    }
+
+    @Benchmark
+    public IList<Result> repeatedQuery() {
+        return this.engine.getTopKResults(this.queries[0], K);
+    }
+}
@@ -0,0 +1,129 @@
+package analysis.benchmarks;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.GrowableArrayList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.models.Webpage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates the synthetic text, queries and webpages the benchmarks run on.
+ *
+ * Words are drawn from a fixed vocabulary with a heavily skewed distribution, so a few
+ * words are very common and most are rare, roughly like the words of real webpages.
+ * Everything is generated from a seed, so every run of a benchmark sees the same data.
+ */
+public class SyntheticCorpus {
+    public static final long SEED = 20240611L;
+
+    public static final int VOCABULARY_SIZE = 20000;
+    public static final int MIN_WORDS_PER_PAGE = 50;
+    public static final int MAX_WORDS_PER_PAGE = 500;
+    public static final int MAX_LINKS_PER_PAGE = 10;
+
+    /**
+     * Returns a random word from the vocabulary.
+     */
+    public static String randomWord(Random random) {
+        double skewed = random.nextDouble() * random.nextDouble() * random.nextDouble();
+        return "w" + (int) (skewed * VOCABULARY_SIZE);
+    }
+
+    /**
+     * Returns the given number of random words.
+     */
+    public static String[] randomWords(Random random, int numWords) {
+        String[] words = new String[numWords];
+        for (int i = 0; i < numWords; i++) {
+            words[i] = randomWord(random);
+        }
+        return words;
+    }
+
+    /**
+     * Returns text made of the given number of random words, with the occasional capital
+     * letter and punctuation mark mixed in for the tokenizer to deal with.
+     */
+    public static String randomText(Random random, int numWords) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < numWords; i++) {
+            String word = randomWord(random);
+            if (random.nextInt(10) == 0) {
+                word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            }
+            text.append(word);
+            if (random.nextInt(8) == 0) {
+                text.append(random.nextBoolean() ? ". " : ",\n");
+            } else {
+                text.append(' ');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns a query made of the given number of random words.
+     */
+    public static IList<String> randomQuery(Random random, int numWords) {
+        IList<String> query = new GrowableArrayList<>(numWords);
+        for (int i = 0; i < numWords; i++) {
+            query.add(randomWord(random));
+        }
+        return query;
+    }
+
+    /**
+     * Returns the URI of the i-th synthetic page.
+     */
+    public static URI pageUri(int i) {
+        return URI.create("http://example.com/page-" + i + ".html");
+    }
+
+    /**
+     * Returns the given number of random webpages, each linking to a few of the others.
+     */
+    public static ISet<Webpage> makeWebpages(int numPages) {
+        Random random = new Random(SEED);
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < numPages; i++) {
+            IList<URI> links = new GrowableArrayList<>();
+            for (int j = random.nextInt(MAX_LINKS_PER_PAGE + 1); j > 0; j--) {
+                links.add(pageUri(random.nextInt(numPages)));
+            }
+            int numWords = MIN_WORDS_PER_PAGE + random.nextInt(MAX_WORDS_PER_PAGE - MIN_WORDS_PER_PAGE);
+            IList<String> words = new GrowableArrayList<>(numWords);
+            for (String word : randomWords(random, numWords)) {
+                words.add(word);
+            }
+            pages.add(new Webpage(pageUri(i), links, words, "Page " + i, "Blurb " + i));
+        }
+        return pages;
+    }
+
+    /**
+     * Writes the given number of random webpages to the given folder as HTML files, in
+     * the format the search engine loads them from.
+     */
+    public static void writeHtmlPages(Path folder, int numPages) throws IOException {
+        Random random = new Random(SEED);
+        for (int i = 0; i < numPages; i++) {
+            StringBuilder page = new StringBuilder();
+            page.append("<!-- METADATA\nuri: ").append(pageUri(i)).append("\n-->\n");
+            page.append("<html><head><title>Page ").append(i).append("</title></head><body>\n");
+            int numWords = MIN_WORDS_PER_PAGE + random.nextInt(MAX_WORDS_PER_PAGE - MIN_WORDS_PER_PAGE);
+            page.append("<p>").append(randomText(random, numWords)).append("</p>\n");
+            for (int j = random.nextInt(MAX_LINKS_PER_PAGE + 1); j > 0; j--) {
+                page.append("<a href=\"page-").append(random.nextInt(numPages)).append(".html\">link</a>\n");
+            }
+            page.append("</body></html>\n");
+            Files.write(folder.resolve("page-" + i + ".html"), page.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package analysis.benchmarks;
+
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import search.analyzers.PreparedQuery;
+import search.analyzers.TfIdfAnalyzer;
+import search.index.DocumentBoosts;
+import search.index.DocumentRegistry;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures scoring queries with a TfIdfAnalyzer built over a synthetic corpus: the
+ * relevance of single documents, with and without a prepared query, and finding the
+ * top documents for a query.
+ *
+ * Each call moves on to the next of a fixed set of queries (and documents), so the
+ * results are not skewed by one unusually cheap or expensive query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TfIdfBenchmark {
+    private static final int NUM_QUERIES = 256;
+    private static final int WORDS_PER_QUERY = 3;
+    private static final int K = 10;
+
+    @Param({"1000", "10000"})
+    public int numPages;
+
+    private TfIdfAnalyzer analyzer;
+    private DocumentBoosts boosts;
+    private IList<String>[] queries;
+    private PreparedQuery[] preparedQueries;
+    private URI[] uris;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        ISet<Webpage> pages = SyntheticCorpus.makeWebpages(this.numPages);
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        this.analyzer = new TfIdfAnalyzer(pages, registry);
+        this.boosts = DocumentBoosts.uniform(registry.size());
+
+        Random random = new Random(SyntheticCorpus.SEED);
+        this.queries = (IList<String>[]) new IList[NUM_QUERIES];
+        this.preparedQueries = new PreparedQuery[NUM_QUERIES];
+        this.uris = new URI[NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            this.queries[i] = SyntheticCorpus.randomQuery(random, WORDS_PER_QUERY);
+            this.preparedQueries[i] = this.analyzer.prepare(this.queries[i]);
+            this.uris[i] = registry.getUri(random.nextInt(registry.size()));
+        }
+        this.next = 0;
+    }
+
+    private int nextIndex() {
+        this.next = (this.next + 1) % NUM_QUERIES;
+        return this.next;
+    }
+
+    @Benchmark
+    public Double computeRelevance() {
+        int i = this.nextIndex();
+        return this.analyzer.computeRelevance(this.queries[i], this.uris[i]);
+    }
+
+    @Benchmark
+    public double computeRelevancePrepared() {
+        int i = this.nextIndex();
+        return this.analyzer.computeRelevance(this.preparedQueries[i], this.uris[i]);
+    }
+
+    @Benchmark
+    public void computeTopScores(Blackhole blackhole) {
+        this.analyzer.computeTopScores(this.queries[this.nextIndex()], K, this.boosts, (docId, score) -> {
+            blackhole.consume(docId);
+            blackhole.consume(score);
+        });
+    }
+}
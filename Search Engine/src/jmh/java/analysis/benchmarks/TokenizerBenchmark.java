@@ -0,0 +1,50 @@
+package analysis.benchmarks;
+
+import datastructures.interfaces.IList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import search.misc.WordTokenizer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long WordTokenizer takes to split a block of text into words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+    @Param({"1000", "100000"})
+    public int numWords;
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        this.text = SyntheticCorpus.randomText(new Random(SyntheticCorpus.SEED), this.numWords);
+    }
+
+    @Benchmark
+    public IList<String> extract() {
+        return WordTokenizer.extract(this.text);
+    }
+
+    @Benchmark
+    public void forEachToken(Blackhole blackhole) {
+        WordTokenizer.forEachToken(this.text, (buffer, length) -> blackhole.consume(length));
+    }
+}
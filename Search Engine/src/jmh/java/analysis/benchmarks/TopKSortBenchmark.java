@@ -0,0 +1,53 @@
+package analysis.benchmarks;
+
+import datastructures.concrete.GrowableArrayList;
+import datastructures.interfaces.IList;
+import misc.Searcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long Searcher.topKSort takes to pick the k largest of a list of random
+ * numbers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopKSortBenchmark {
+    @Param({"10000", "200000"})
+    public int size;
+
+    @Param({"10", "1000"})
+    public int k;
+
+    private IList<Integer> input;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SyntheticCorpus.SEED);
+        this.input = new GrowableArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            this.input.add(random.nextInt());
+        }
+    }
+
+    @Benchmark
+    public IList<Integer> topKSort() {
+        return Searcher.topKSort(this.k, this.input);
+    }
+}
@@ -0,0 +1,111 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.OpenAddressingDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares ChainedHashDictionary against OpenAddressingDictionary on the work the
+ * analyzers give them: counting how often each word appears in a long list of words,
+ * then looking every word up again.
+ */
+public class Experiment4 {
+    public static final int NUM_TRIALS = 5;
+    public static final long MAX_NUM_WORDS = 500000;
+    public static final long STEP = 10000;
+
+    // Each list of words is drawn from this many distinct words, some far more common
+    // than others, like the words of real webpages.
+    public static final int VOCABULARY_SIZE = 50000;
+
+    public static void main(String[] args) {
+        IList<Long> numWords = AnalysisUtils.makeList(0L, MAX_NUM_WORDS, STEP);
+
+        System.out.println("Starting test");
+        IList<Long> test1Results = AnalysisUtils.runTrials(numWords, Experiment4::test1, NUM_TRIALS);
+        IList<Long> test2Results = AnalysisUtils.runTrials(numWords, Experiment4::test2, NUM_TRIALS);
+        IList<Long> test3Results = AnalysisUtils.runTrials(numWords, Experiment4::test3, NUM_TRIALS);
+        IList<Long> test4Results = AnalysisUtils.runTrials(numWords, Experiment4::test4, NUM_TRIALS);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("NumWords", numWords);
+        writer.addColumn("Test1Result", test1Results);
+        writer.addColumn("Test2Result", test2Results);
+        writer.addColumn("Test3Result", test3Results);
+        writer.addColumn("Test4Result", test4Results);
+        writer.writeToFile("experimentdata/experiment4.csv");
+
+        System.out.println("All done!");
+    }
+
+    /**
+     * Counts words with a ChainedHashDictionary.
+     */
+    public static long test1(long numWords) {
+        return timeCounting(generateWords((int) numWords), ChainedHashDictionary::new);
+    }
+
+    /**
+     * Counts words with an OpenAddressingDictionary.
+     */
+    public static long test2(long numWords) {
+        return timeCounting(generateWords((int) numWords), OpenAddressingDictionary::new);
+    }
+
+    /**
+     * Looks up the count of every word in a ChainedHashDictionary.
+     */
+    public static long test3(long numWords) {
+        return timeLookups(generateWords((int) numWords), ChainedHashDictionary::new);
+    }
+
+    /**
+     * Looks up the count of every word in an OpenAddressingDictionary.
+     */
+    public static long test4(long numWords) {
+        return timeLookups(generateWords((int) numWords), OpenAddressingDictionary::new);
+    }
+
+    private static long timeCounting(String[] words, Supplier<IDictionary<String, Integer>> newDictionary) {
+        long start = System.currentTimeMillis();
+        countWords(words, newDictionary.get());
+        return System.currentTimeMillis() - start;
+    }
+
+    private static long timeLookups(String[] words, Supplier<IDictionary<String, Integer>> newDictionary) {
+        IDictionary<String, Integer> counts = countWords(words, newDictionary.get());
+
+        long start = System.currentTimeMillis();
+        for (String word : words) {
+            counts.get(word);
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private static IDictionary<String, Integer> countWords(String[] words, IDictionary<String, Integer> counts) {
+        for (String word : words) {
+            counts.put(word, counts.getOrDefault(word, 0) + 1);
+        }
+        return counts;
+    }
+
+    private static String[] generateWords(int numWords) {
+        Random rand = new Random();
+
+        String[] words = new String[numWords];
+        for (int i = 0; i < numWords; i++) {
+            // Square the random number so some words are much more common than others.
+            double skewed = rand.nextDouble() * rand.nextDouble();
+            // Build a new string each time, so equal words are not the same object.
+            words[i] = new String("word" + (int) (skewed * VOCABULARY_SIZE));
+        }
+        return words;
+    }
+}
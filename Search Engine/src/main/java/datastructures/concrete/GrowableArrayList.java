@@ -0,0 +1,162 @@
+package datastructures.concrete;
+
+import datastructures.interfaces.IList;
+import misc.exceptions.EmptyContainerException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An IList backed by a single array that doubles in size whenever it fills up.
+ *
+ * Adding to or removing from the end takes amortized constant time, and so do 'get' and
+ * 'set' at any index. Inserting or deleting anywhere else has to shift every later
+ * element over by one. Compared to DoubleLinkedList, there is no node object per
+ * element, and iterating reads the elements straight out of one array.
+ */
+public class GrowableArrayList<T> implements IList<T> {
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private T[] elements;
+    private int size;
+
+    public GrowableArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty list with room for the given number of elements before it has
+     * to grow.
+     *
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public GrowableArrayList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        this.elements = makeArray(initialCapacity);
+        this.size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T[] makeArray(int capacity) {
+        return (T[]) new Object[capacity];
+    }
+
+    @Override
+    public void add(T item) {
+        if (this.size == this.elements.length) {
+            this.grow();
+        }
+        this.elements[this.size] = item;
+        this.size++;
+    }
+
+    @Override
+    public T remove() {
+        if (this.size == 0) {
+            throw new EmptyContainerException();
+        }
+        this.size--;
+        T removed = this.elements[this.size];
+        this.elements[this.size] = null;
+        return removed;
+    }
+
+    @Override
+    public T get(int index) {
+        this.checkIndex(index, this.size);
+        return this.elements[index];
+    }
+
+    @Override
+    public void set(int index, T item) {
+        this.checkIndex(index, this.size);
+        this.elements[index] = item;
+    }
+
+    @Override
+    public void insert(int index, T item) {
+        this.checkIndex(index, this.size + 1);
+        if (this.size == this.elements.length) {
+            this.grow();
+        }
+        System.arraycopy(this.elements, index, this.elements, index + 1, this.size - index);
+        this.elements[index] = item;
+        this.size++;
+    }
+
+    @Override
+    public T delete(int index) {
+        this.checkIndex(index, this.size);
+        T removed = this.elements[index];
+        System.arraycopy(this.elements, index + 1, this.elements, index, this.size - index - 1);
+        this.size--;
+        this.elements[this.size] = null;
+        return removed;
+    }
+
+    @Override
+    public int indexOf(T item) {
+        for (int i = 0; i < this.size; i++) {
+            if (item == this.elements[i] || (item != null && item.equals(this.elements[i]))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean contains(T other) {
+        return this.indexOf(other) != -1;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new GrowableArrayListIterator<>(this.elements, this.size);
+    }
+
+    private void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+        }
+    }
+
+    private void grow() {
+        T[] newElements = makeArray(Math.max(2 * this.elements.length, DEFAULT_CAPACITY));
+        System.arraycopy(this.elements, 0, newElements, 0, this.size);
+        this.elements = newElements;
+    }
+
+    private static class GrowableArrayListIterator<T> implements Iterator<T> {
+        private T[] elements;
+        private int size;
+        private int next;
+
+        public GrowableArrayListIterator(T[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+            this.next = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next < this.size;
+        }
+
+        @Override
+        public T next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T item = this.elements[this.next];
+            this.next++;
+            return item;
+        }
+    }
+}
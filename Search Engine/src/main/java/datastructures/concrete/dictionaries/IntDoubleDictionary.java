@@ -0,0 +1,309 @@
+package datastructures.concrete.dictionaries;
+
+import datastructures.concrete.KVPair;
+import datastructures.interfaces.IDictionary;
+import misc.exceptions.NoSuchKeyException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash dictionary from ints to doubles that stores both keys and values as primitives.
+ *
+ * This is ObjectDoubleDictionary with int keys: on top of the IDictionary methods, which
+ * box every key and value, it offers 'getDouble', 'putDouble' and 'addTo', which never
+ * allocate (apart from growing the arrays), and a Cursor for walking every entry
+ * without creating a KVPair per entry. The IDictionary methods do not accept null keys.
+ */
+public class IntDoubleDictionary implements IDictionary<Integer, Double> {
+    // Must be a power of two, so we can find a slot by masking instead of with '%'.
+    private static final int INITIAL_CAPACITY = 16;
+
+    // We grow the arrays once more than this fraction of the slots are full.
+    private static final double MAX_LOAD_FACTOR = 0.5;
+
+    // Whether each slot holds a key. (Every int is a valid key, so no key value can
+    // mark a slot as empty.)
+    private boolean[] used;
+    private int[] keys;
+    private double[] values;
+    private int size;
+
+    // The number of keys at which we next grow the arrays.
+    private int threshold;
+
+    public IntDoubleDictionary() {
+        this.allocate(INITIAL_CAPACITY);
+        this.size = 0;
+    }
+
+    @Override
+    public Double get(Integer key) {
+        return this.getDouble(key);
+    }
+
+    /**
+     * Returns the value corresponding to the given key.
+     *
+     * @throws NoSuchKeyException if the dictionary does not contain the given key.
+     */
+    public double getDouble(int key) {
+        int slot = this.findSlot(key);
+        if (slot < 0) {
+            throw new NoSuchKeyException();
+        }
+        return this.values[slot];
+    }
+
+    /**
+     * Returns the value corresponding to the given key, or the given default value if
+     * the dictionary does not contain the key.
+     */
+    public double getDouble(int key, double defaultValue) {
+        int slot = this.findSlot(key);
+        return slot < 0 ? defaultValue : this.values[slot];
+    }
+
+    @Override
+    public Double getOrDefault(Integer key, Double defaultValue) {
+        int slot = this.findSlot(key);
+        return slot < 0 ? defaultValue : Double.valueOf(this.values[slot]);
+    }
+
+    /**
+     * @throws NullPointerException if the value is null: this dictionary cannot store it.
+     */
+    @Override
+    public void put(Integer key, Double value) {
+        this.putDouble(key, value);
+    }
+
+    /**
+     * Adds the key-value pair to the dictionary. If the key already exists in the
+     * dictionary, replaces its value with the given one.
+     */
+    public void putDouble(int key, double value) {
+        // Find the slot first: inserting may replace the values array.
+        int slot = this.findOrInsert(key);
+        this.values[slot] = value;
+    }
+
+    /**
+     * Adds the given amount to the value of the given key, treating a missing key as
+     * having a value of zero, and returns the new value.
+     */
+    public double addTo(int key, double amount) {
+        int slot = this.findOrInsert(key);
+        this.values[slot] += amount;
+        return this.values[slot];
+    }
+
+    @Override
+    public Double remove(Integer key) {
+        return this.removeDouble(key);
+    }
+
+    /**
+     * Removes the given key and returns the value it had.
+     *
+     * @throws NoSuchKeyException if the dictionary does not contain the given key.
+     */
+    public double removeDouble(int key) {
+        int slot = this.findSlot(key);
+        if (slot < 0) {
+            throw new NoSuchKeyException();
+        }
+        double removed = this.values[slot];
+
+        // Walk the keys following the removed one. Any key whose home slot is not
+        // between the gap and its current slot would no longer be found once the gap
+        // is emptied, so it moves back into the gap, leaving a new gap where it was.
+        int mask = this.keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (this.used[next]) {
+            int home = hash(this.keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                this.keys[gap] = this.keys[next];
+                this.values[gap] = this.values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.used[gap] = false;
+        this.values[gap] = 0.0;
+        this.size--;
+        return removed;
+    }
+
+    @Override
+    public boolean containsKey(Integer key) {
+        return this.containsKey((int) key);
+    }
+
+    /**
+     * Returns 'true' if the dictionary contains the given key and 'false' otherwise.
+     */
+    public boolean containsKey(int key) {
+        return this.findSlot(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Iterator<KVPair<Integer, Double>> iterator() {
+        Cursor cursor = this.cursor();
+        return new Iterator<KVPair<Integer, Double>>() {
+            private boolean hasNext = cursor.next();
+
+            @Override
+            public boolean hasNext() {
+                return this.hasNext;
+            }
+
+            @Override
+            public KVPair<Integer, Double> next() {
+                if (!this.hasNext) {
+                    throw new NoSuchElementException();
+                }
+                KVPair<Integer, Double> pair = new KVPair<>(cursor.key(), cursor.value());
+                this.hasNext = cursor.next();
+                return pair;
+            }
+        };
+    }
+
+    /**
+     * Returns a cursor positioned before the first entry of this dictionary.
+     *
+     * Keys must not be added or removed while the cursor is in use, though values may
+     * be changed through 'Cursor.setValue'.
+     */
+    public Cursor cursor() {
+        return new Cursor(this);
+    }
+
+    /**
+     * Returns the slot holding the given key if it is present. Otherwise, returns
+     * -(s + 1), where s is the empty slot the key would be stored in.
+     */
+    private int findSlot(int key) {
+        int mask = this.keys.length - 1;
+        int slot = hash(key) & mask;
+        while (this.used[slot]) {
+            if (this.keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    /**
+     * Returns the slot holding the given key, first adding the key with a value of zero
+     * if it is not present.
+     */
+    private int findOrInsert(int key) {
+        int slot = this.findSlot(key);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (this.size >= this.threshold) {
+            this.resize(2 * this.keys.length);
+            slot = this.findSlot(key);
+        }
+        slot = -slot - 1;
+        this.used[slot] = true;
+        this.keys[slot] = key;
+        this.size++;
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        this.used = new boolean[capacity];
+        this.keys = new int[capacity];
+        this.values = new double[capacity];
+        this.threshold = (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Moves every key into new arrays with the given number of slots.
+     */
+    private void resize(int capacity) {
+        boolean[] oldUsed = this.used;
+        int[] oldKeys = this.keys;
+        double[] oldValues = this.values;
+        this.allocate(capacity);
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (this.used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                this.used[slot] = true;
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the given key with its bits mixed, so runs of consecutive keys (such as
+     * term or document ids) spread out over the table instead of filling it in order.
+     */
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Walks over every entry of an IntDoubleDictionary, in no particular order. A
+     * cursor starts out positioned before the first entry; call 'next' to move it.
+     */
+    public static final class Cursor {
+        private IntDoubleDictionary dictionary;
+        private int slot;
+
+        private Cursor(IntDoubleDictionary dictionary) {
+            this.dictionary = dictionary;
+            this.slot = -1;
+        }
+
+        /**
+         * Moves to the next entry, returning false if there are none left.
+         */
+        public boolean next() {
+            boolean[] used = this.dictionary.used;
+            do {
+                this.slot++;
+            } while (this.slot < used.length && !used[this.slot]);
+            return this.slot < used.length;
+        }
+
+        /**
+         * Returns the key of the current entry.
+         */
+        public int key() {
+            return this.dictionary.keys[this.slot];
+        }
+
+        /**
+         * Returns the value of the current entry.
+         */
+        public double value() {
+            return this.dictionary.values[this.slot];
+        }
+
+        /**
+         * Replaces the value of the current entry.
+         */
+        public void setValue(double value) {
+            this.dictionary.values[this.slot] = value;
+        }
+    }
+}
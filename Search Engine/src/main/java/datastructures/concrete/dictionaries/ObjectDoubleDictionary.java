@@ -0,0 +1,301 @@
+package datastructures.concrete.dictionaries;
+
+import datastructures.concrete.KVPair;
+import datastructures.interfaces.IDictionary;
+import misc.exceptions.NoSuchKeyException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash dictionary from objects to doubles that stores its values as primitive doubles.
+ *
+ * It is laid out like OpenAddressingDictionary: keys, values and cached hash codes in
+ * parallel arrays, with linear probing. On top of the IDictionary methods, which box
+ * and unbox every value, it offers 'getDouble', 'putDouble' and 'addTo', which never
+ * allocate (apart from growing the arrays), and a Cursor for walking every entry
+ * without creating a KVPair per entry.
+ */
+public class ObjectDoubleDictionary<K> implements IDictionary<K, Double> {
+    // Must be a power of two, so we can find a slot by masking instead of with '%'.
+    private static final int INITIAL_CAPACITY = 16;
+
+    // We grow the arrays once more than this fraction of the slots are full.
+    private static final double MAX_LOAD_FACTOR = 0.5;
+
+    // Empty slots hold a null key, so a null key is stored as this object instead.
+    private static final Object NULL_KEY = new Object();
+
+    private Object[] keys;
+    private double[] values;
+    private int[] hashes;
+    private int size;
+
+    // The number of keys at which we next grow the arrays.
+    private int threshold;
+
+    public ObjectDoubleDictionary() {
+        this.allocate(INITIAL_CAPACITY);
+        this.size = 0;
+    }
+
+    @Override
+    public Double get(K key) {
+        return this.getDouble(key);
+    }
+
+    /**
+     * Returns the value corresponding to the given key.
+     *
+     * @throws NoSuchKeyException if the dictionary does not contain the given key.
+     */
+    public double getDouble(K key) {
+        int slot = this.findSlot(key);
+        if (slot < 0) {
+            throw new NoSuchKeyException();
+        }
+        return this.values[slot];
+    }
+
+    /**
+     * Returns the value corresponding to the given key, or the given default value if
+     * the dictionary does not contain the key.
+     */
+    public double getDouble(K key, double defaultValue) {
+        int slot = this.findSlot(key);
+        return slot < 0 ? defaultValue : this.values[slot];
+    }
+
+    @Override
+    public Double getOrDefault(K key, Double defaultValue) {
+        int slot = this.findSlot(key);
+        return slot < 0 ? defaultValue : Double.valueOf(this.values[slot]);
+    }
+
+    /**
+     * @throws NullPointerException if the value is null: this dictionary cannot store it.
+     */
+    @Override
+    public void put(K key, Double value) {
+        this.putDouble(key, value);
+    }
+
+    /**
+     * Adds the key-value pair to the dictionary. If the key already exists in the
+     * dictionary, replaces its value with the given one.
+     */
+    public void putDouble(K key, double value) {
+        // Find the slot first: inserting may replace the values array.
+        int slot = this.findOrInsert(key);
+        this.values[slot] = value;
+    }
+
+    /**
+     * Adds the given amount to the value of the given key, treating a missing key as
+     * having a value of zero, and returns the new value.
+     */
+    public double addTo(K key, double amount) {
+        int slot = this.findOrInsert(key);
+        this.values[slot] += amount;
+        return this.values[slot];
+    }
+
+    @Override
+    public Double remove(K key) {
+        int slot = this.findSlot(key);
+        if (slot < 0) {
+            throw new NoSuchKeyException();
+        }
+        double removed = this.values[slot];
+
+        // Walk the keys following the removed one. Any key whose home slot is not
+        // between the gap and its current slot would no longer be found once the gap
+        // is emptied, so it moves back into the gap, leaving a new gap where it was.
+        int mask = this.keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (this.keys[next] != null) {
+            int home = this.hashes[next] & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                this.keys[gap] = this.keys[next];
+                this.values[gap] = this.values[next];
+                this.hashes[gap] = this.hashes[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.keys[gap] = null;
+        this.values[gap] = 0.0;
+        this.size--;
+        return removed;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return this.findSlot(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Iterator<KVPair<K, Double>> iterator() {
+        Cursor<K> cursor = this.cursor();
+        return new Iterator<KVPair<K, Double>>() {
+            private boolean hasNext = cursor.next();
+
+            @Override
+            public boolean hasNext() {
+                return this.hasNext;
+            }
+
+            @Override
+            public KVPair<K, Double> next() {
+                if (!this.hasNext) {
+                    throw new NoSuchElementException();
+                }
+                KVPair<K, Double> pair = new KVPair<>(cursor.key(), cursor.value());
+                this.hasNext = cursor.next();
+                return pair;
+            }
+        };
+    }
+
+    /**
+     * Returns a cursor positioned before the first entry of this dictionary.
+     *
+     * Keys must not be added or removed while the cursor is in use, though values may
+     * be changed through 'Cursor.setValue'.
+     */
+    public Cursor<K> cursor() {
+        return new Cursor<>(this);
+    }
+
+    /**
+     * Returns the slot holding the given key if it is present. Otherwise, returns
+     * -(s + 1), where s is the empty slot the key would be stored in.
+     */
+    private int findSlot(K key) {
+        Object stored = key == null ? NULL_KEY : key;
+        int hash = hash(key);
+        int mask = this.keys.length - 1;
+        int slot = hash & mask;
+        while (this.keys[slot] != null) {
+            if (this.hashes[slot] == hash && (this.keys[slot] == stored || this.keys[slot].equals(stored))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    /**
+     * Returns the slot holding the given key, first adding the key with a value of zero
+     * if it is not present.
+     */
+    private int findOrInsert(K key) {
+        int slot = this.findSlot(key);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (this.size >= this.threshold) {
+            this.resize(2 * this.keys.length);
+            slot = this.findSlot(key);
+        }
+        slot = -slot - 1;
+        this.keys[slot] = key == null ? NULL_KEY : key;
+        this.hashes[slot] = hash(key);
+        this.size++;
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new Object[capacity];
+        this.values = new double[capacity];
+        this.hashes = new int[capacity];
+        this.threshold = (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Moves every key into new arrays with the given number of slots, reusing the
+     * cached hash codes.
+     */
+    private void resize(int capacity) {
+        Object[] oldKeys = this.keys;
+        double[] oldValues = this.values;
+        int[] oldHashes = this.hashes;
+        this.allocate(capacity);
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (this.keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+                this.hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the given key's hash code with its bits mixed, so keys whose hash codes only
+     * differ in their high bits still land in different slots.
+     */
+    private static int hash(Object key) {
+        int hash = key == null ? 0 : key.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Walks over every entry of an ObjectDoubleDictionary, in no particular order. A
+     * cursor starts out positioned before the first entry; call 'next' to move it.
+     */
+    public static final class Cursor<K> {
+        private ObjectDoubleDictionary<K> dictionary;
+        private int slot;
+
+        private Cursor(ObjectDoubleDictionary<K> dictionary) {
+            this.dictionary = dictionary;
+            this.slot = -1;
+        }
+
+        /**
+         * Moves to the next entry, returning false if there are none left.
+         */
+        public boolean next() {
+            Object[] keys = this.dictionary.keys;
+            do {
+                this.slot++;
+            } while (this.slot < keys.length && keys[this.slot] == null);
+            return this.slot < keys.length;
+        }
+
+        /**
+         * Returns the key of the current entry.
+         */
+        @SuppressWarnings("unchecked")
+        public K key() {
+            Object key = this.dictionary.keys[this.slot];
+            return key == NULL_KEY ? null : (K) key;
+        }
+
+        /**
+         * Returns the value of the current entry.
+         */
+        public double value() {
+            return this.dictionary.values[this.slot];
+        }
+
+        /**
+         * Replaces the value of the current entry.
+         */
+        public void setValue(double value) {
+            this.dictionary.values[this.slot] = value;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package datastructures.concrete.dictionaries;
+
+import datastructures.concrete.KVPair;
+import datastructures.interfaces.IDictionary;
+import misc.exceptions.NoSuchKeyException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash dictionary that stores its keys and values directly in parallel arrays, using
+ * linear probing to resolve collisions.
+ *
+ * Compared to ChainedHashDictionary, there are no chains or pair objects to allocate, a
+ * lookup reads neighbouring slots of the same arrays rather than following pointers, and
+ * every operation finds its slot with a single probe sequence. Each key's hash code is
+ * cached next to it, so most mismatched slots are skipped without calling 'equals', and
+ * resizing never calls 'hashCode' again.
+ *
+ * Removing a key shifts the keys after it back into the gap instead of leaving a
+ * tombstone, so lookups never slow down after many removals.
+ */
+public class OpenAddressingDictionary<K, V> implements IDictionary<K, V> {
+    // Must be a power of two, so we can find a slot by masking instead of with '%'.
+    private static final int INITIAL_CAPACITY = 16;
+
+    // We grow the arrays once more than this fraction of the slots are full.
+    private static final double MAX_LOAD_FACTOR = 0.5;
+
+    // Empty slots hold a null key, so a null key is stored as this object instead.
+    private static final Object NULL_KEY = new Object();
+
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int size;
+
+    // The number of keys at which we next grow the arrays.
+    private int threshold;
+
+    public OpenAddressingDictionary() {
+        this.allocate(INITIAL_CAPACITY);
+        this.size = 0;
+    }
+
+    @Override
+    public V get(K key) {
+        int slot = this.findSlot(key);
+        if (slot < 0) {
+            throw new NoSuchKeyException();
+        }
+        return this.valueAt(slot);
+    }
+
+    @Override
+    public V getOrDefault(K key, V defaultValue) {
+        int slot = this.findSlot(key);
+        return slot < 0 ? defaultValue : this.valueAt(slot);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int slot = this.findSlot(key);
+        if (slot >= 0) {
+            this.values[slot] = value;
+            return;
+        }
+        if (this.size >= this.threshold) {
+            this.resize(2 * this.keys.length);
+            slot = this.findSlot(key);
+        }
+        slot = -slot - 1;
+        this.keys[slot] = key == null ? NULL_KEY : key;
+        this.values[slot] = value;
+        this.hashes[slot] = hash(key);
+        this.size++;
+    }
+
+    @Override
+    public V remove(K key) {
+        int slot = this.findSlot(key);
+        if (slot < 0) {
+            throw new NoSuchKeyException();
+        }
+        V removed = this.valueAt(slot);
+
+        // Walk the keys following the removed one. Any key whose home slot is not
+        // between the gap and its current slot would no longer be found once the gap
+        // is emptied, so it moves back into the gap, leaving a new gap where it was.
+        int mask = this.keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (this.keys[next] != null) {
+            int home = this.hashes[next] & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                this.keys[gap] = this.keys[next];
+                this.values[gap] = this.values[next];
+                this.hashes[gap] = this.hashes[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.keys[gap] = null;
+        this.values[gap] = null;
+        this.size--;
+        return removed;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return this.findSlot(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Iterator<KVPair<K, V>> iterator() {
+        return new OpenAddressingIterator<>(this.keys, this.values);
+    }
+
+    /**
+     * Returns the slot holding the given key if it is present. Otherwise, returns
+     * -(s + 1), where s is the empty slot the key would be stored in.
+     */
+    private int findSlot(K key) {
+        Object stored = key == null ? NULL_KEY : key;
+        int hash = hash(key);
+        int mask = this.keys.length - 1;
+        int slot = hash & mask;
+        while (this.keys[slot] != null) {
+            if (this.hashes[slot] == hash && (this.keys[slot] == stored || this.keys[slot].equals(stored))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int slot) {
+        return (V) this.values[slot];
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new Object[capacity];
+        this.values = new Object[capacity];
+        this.hashes = new int[capacity];
+        this.threshold = (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Moves every key into new arrays with the given number of slots, reusing the
+     * cached hash codes.
+     */
+    private void resize(int capacity) {
+        Object[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        int[] oldHashes = this.hashes;
+        this.allocate(capacity);
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (this.keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+                this.hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the given key's hash code with its bits mixed, so keys whose hash codes only
+     * differ in their high bits still land in different slots.
+     */
+    private static int hash(Object key) {
+        int hash = key == null ? 0 : key.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static class OpenAddressingIterator<K, V> implements Iterator<KVPair<K, V>> {
+        private Object[] keys;
+        private Object[] values;
+        private int nextSlot;
+
+        public OpenAddressingIterator(Object[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+            this.nextSlot = 0;
+            this.skipEmptySlots();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.nextSlot < this.keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public KVPair<K, V> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object key = this.keys[this.nextSlot];
+            KVPair<K, V> pair = new KVPair<>(key == NULL_KEY ? null : (K) key, (V) this.values[this.nextSlot]);
+            this.nextSlot++;
+            this.skipEmptySlots();
+            return pair;
+        }
+
+        private void skipEmptySlots() {
+            while (this.nextSlot < this.keys.length && this.keys[this.nextSlot] == null) {
+                this.nextSlot++;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package search;
+
+import search.misc.Deadline;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits how many searches run at once, so a burst of requests queues up (or is turned
+ * away) instead of slowing every search down until they all time out.
+ *
+ * At most 'maxInFlight' searches run at a time. A search arriving while all of those are
+ * taken waits its turn, first come first served, along with at most 'maxQueued' others.
+ * If the queue is already full, or the search's deadline passes before its turn comes,
+ * it is rejected straight away, and the caller should tell the client to try again later.
+ *
+ * The controller is safe to use from several threads at once.
+ */
+public class AdmissionController {
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final Semaphore permits;
+    private final AtomicInteger queued;
+
+    private final AtomicInteger rejected;
+
+    /**
+     * Constructs a controller letting the given number of searches run at once, with at
+     * most the given number of others waiting for their turn.
+     *
+     * @throws IllegalArgumentException if maxInFlight < 1 or maxQueued < 0
+     */
+    public AdmissionController(int maxInFlight, int maxQueued) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued must not be negative");
+        }
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.permits = new Semaphore(maxInFlight, true);
+        this.queued = new AtomicInteger(0);
+        this.rejected = new AtomicInteger(0);
+    }
+
+    /**
+     * Waits until a search may run, and returns true, or returns false if the search is
+     * rejected: because the queue is full, or because the given deadline passed (or the
+     * thread was interrupted) while it waited.
+     *
+     * Every call that returns true must be matched by exactly one call to 'exit', once
+     * the search is done.
+     */
+    public boolean tryEnter(Deadline deadline) {
+        // Checking for a free permit with a zero timeout (rather than plain 'tryAcquire')
+        // respects the queue, so a new search never jumps ahead of one already waiting.
+        try {
+            if (this.permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            this.rejected.incrementAndGet();
+            return false;
+        }
+
+        if (this.queued.incrementAndGet() > this.maxQueued) {
+            this.queued.decrementAndGet();
+            this.rejected.incrementAndGet();
+            return false;
+        }
+        try {
+            if (this.permits.tryAcquire(deadline.remainingNanos(), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.queued.decrementAndGet();
+        }
+        this.rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Marks a search let in by 'tryEnter' as done, letting the next one in.
+     */
+    public void exit() {
+        this.permits.release();
+    }
+
+    /**
+     * Returns the number of searches running right now.
+     */
+    public int inFlight() {
+        return this.maxInFlight - this.permits.availablePermits();
+    }
+
+    /**
+     * Returns the number of searches waiting for their turn right now.
+     */
+    public int queued() {
+        return this.queued.get();
+    }
+
+    /**
+     * Returns the number of searches rejected so far.
+     */
+    public int rejected() {
+        return this.rejected.get();
+    }
+
+    /**
+     * Returns the most searches this controller lets run at once.
+     */
+    public int maxInFlight() {
+        return this.maxInFlight;
+    }
+
+    /**
+     * Returns the most searches this controller lets wait for their turn at once.
+     */
+    public int maxQueued() {
+        return this.maxQueued;
+    }
+}
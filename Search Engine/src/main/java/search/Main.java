@@ -1,5 +1,9 @@
 package search;
 
+import search.metrics.SlowQueryLog;
+
+import java.nio.file.Paths;
+
 public class Main {
     // The dataset to index and search.
     // MUST be the name of one of the folders in the 'data' folder.
@@ -13,12 +17,38 @@ public class Main {
     // and know what ports are, feel free to change this if it's convenient.
     public static final int PORT = 8328;
 
+    // How many searches may run at once, and how many more may wait for their turn.
+    // Any search arriving once the queue is full is turned away with a 503.
+    public static final int MAX_IN_FLIGHT_SEARCHES = Runtime.getRuntime().availableProcessors();
+    public static final int MAX_QUEUED_SEARCHES = 4 * MAX_IN_FLIGHT_SEARCHES;
+
+    // How long a search may take, including time spent waiting in the queue, before we
+    // give up on it.
+    public static final long SEARCH_TIMEOUT_MILLIS = 2000;
+
+    // Every search taking at least this long is written to the slow query log, which is
+    // rolled over once it reaches the given size, keeping the given number of old logs.
+    public static final long SLOW_QUERY_THRESHOLD_MILLIS = 200;
+    public static final String SLOW_QUERY_LOG_FILE = "slow-queries.log";
+    public static final long SLOW_QUERY_LOG_MAX_BYTES = 10 * 1024 * 1024;
+    public static final int SLOW_QUERY_LOG_MAX_OLD_FILES = 5;
+
     public static void main(String[] args) {
         System.out.println("Indexing web pages...");
         SearchEngine engine = new SearchEngine(DATA_FOLDER_NAME);
 
         System.out.println("Setting up web server...");
-        Webapp app = new Webapp(engine, SITE_TITLE, PORT);
+        Webapp app = new Webapp(
+                engine,
+                SITE_TITLE,
+                PORT,
+                new AdmissionController(MAX_IN_FLIGHT_SEARCHES, MAX_QUEUED_SEARCHES),
+                SEARCH_TIMEOUT_MILLIS,
+                new SlowQueryLog(
+                        Paths.get(SLOW_QUERY_LOG_FILE),
+                        SLOW_QUERY_THRESHOLD_MILLIS,
+                        SLOW_QUERY_LOG_MAX_BYTES,
+                        SLOW_QUERY_LOG_MAX_OLD_FILES));
 
         System.out.println(String.format(
                 "Ready! Opening 'http://localhost:%d' in your web browser now.",
@@ -0,0 +1,139 @@
+package search;
+
+import datastructures.interfaces.IList;
+import search.index.IndexablePage;
+import search.misc.exceptions.DataExtractionException;
+import search.models.Webpage;
+
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads webpages on several threads at once and hands each one, reduced to an
+ * IndexablePage, to a consumer running on the calling thread.
+ *
+ * Parsing a page and extracting its article is by far the slowest part of building an
+ * index, and every page can be parsed independently, so the workers each take the next
+ * unclaimed path, load it, and put the result on a bounded queue. The consumer takes
+ * pages off the queue as they arrive. If the consumer falls behind, the queue fills up
+ * and the workers wait, so at most a fixed number of loaded pages exist at any one time
+ * on top of whatever the consumer keeps.
+ */
+public class PageLoader {
+    @FunctionalInterface
+    public interface PageConsumer {
+        /**
+         * Accepts the page loaded from the path at the given index of the list passed
+         * to 'load'.
+         */
+        void accept(int index, IndexablePage page);
+    }
+
+    private int numWorkers;
+    private int queueCapacity;
+
+    /**
+     * Constructs a loader that loads pages on the given number of threads, and lets at
+     * most 'queueCapacity' loaded pages wait for the consumer.
+     *
+     * @throws IllegalArgumentException if either argument is not positive
+     */
+    public PageLoader(int numWorkers, int queueCapacity) {
+        if (numWorkers <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Need at least one worker and room for one page");
+        }
+        this.numWorkers = numWorkers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Loads the webpage at every one of the given paths, calling the consumer once per
+     * path, on the calling thread. Pages reach the consumer in the order they finish
+     * loading, not necessarily the order of the list.
+     *
+     * If any page fails to load, or the consumer throws, the remaining pages are not
+     * loaded and the exception is rethrown here.
+     *
+     * @throws DataExtractionException if the calling thread is interrupted while waiting
+     *                                 for a page
+     */
+    public void load(IList<Path> paths, PageConsumer consumer) {
+        Path[] pathArray = new Path[paths.size()];
+        int i = 0;
+        for (Path path : paths) {
+            pathArray[i] = path;
+            i++;
+        }
+
+        BlockingQueue<LoadedPage> loaded = new ArrayBlockingQueue<>(this.queueCapacity);
+        AtomicInteger nextPath = new AtomicInteger(0);
+        int workers = Math.min(this.numWorkers, Math.max(pathArray.length, 1));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            for (int worker = 0; worker < workers; worker++) {
+                executor.execute(() -> loadPages(pathArray, nextPath, loaded));
+            }
+            for (int received = 0; received < pathArray.length; received++) {
+                LoadedPage next = loaded.take();
+                if (next.failure instanceof Error) {
+                    throw (Error) next.failure;
+                } else if (next.failure != null) {
+                    throw (RuntimeException) next.failure;
+                }
+                consumer.accept(next.index, next.page);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataExtractionException("Interrupted while loading webpages", ex);
+        } finally {
+            // Stops any worker still loading pages, or waiting for room on the queue,
+            // if we are leaving early.
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Keeps loading the next unclaimed path until there are none left, the loader is
+     * shut down, or a page fails to load.
+     */
+    private static void loadPages(Path[] paths, AtomicInteger nextPath, BlockingQueue<LoadedPage> loaded) {
+        try {
+            int index = nextPath.getAndIncrement();
+            while (index < paths.length && !Thread.currentThread().isInterrupted()) {
+                LoadedPage result;
+                try {
+                    IndexablePage page = IndexablePage.of(Webpage.load(paths[index].toUri()));
+                    result = new LoadedPage(index, page, null);
+                } catch (RuntimeException | Error ex) {
+                    result = new LoadedPage(index, null, ex);
+                }
+                loaded.put(result);
+                if (result.failure != null) {
+                    return;
+                }
+                index = nextPath.getAndIncrement();
+            }
+        } catch (InterruptedException ex) {
+            // Do nothing: the consumer is no longer waiting for pages
+        }
+    }
+
+    /**
+     * A page a worker finished loading, or the reason it could not.
+     */
+    private static class LoadedPage {
+        private final int index;
+        private final IndexablePage page;
+        private final Throwable failure;
+
+        LoadedPage(int index, IndexablePage page, Throwable failure) {
+            this.index = index;
+            this.page = page;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package search;
+
+import datastructures.concrete.GrowableArrayList;
+import datastructures.concrete.dictionaries.OpenAddressingDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import search.models.Result;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the results of the most recently used queries, so repeating a query costs a
+ * single hash lookup instead of scoring every matching page again.
+ *
+ * Entries are keyed on the query's words (in order) and the number of results asked
+ * for. Once the cache holds 'capacity' entries, adding another evicts the one used least
+ * recently. The entries sit in a doubly linked list ordered from most to least recently
+ * used, next to a dictionary from each key to its node, so lookups, insertions and
+ * evictions all take constant time.
+ *
+ * The cache is safe to use from several threads at once. The results themselves are
+ * computed outside the lock, so a slow query never holds up the others.
+ */
+public class QueryCache {
+    // The function the cache calls to compute the results of a query it does not have.
+    @FunctionalInterface
+    public interface QueryFunction {
+        IList<Result> apply(IList<String> query, int k);
+    }
+
+    private int capacity;
+    private IDictionary<Key, Node> nodes;
+
+    // A sentinel node: 'head.next' is the most recently used entry, and 'head.prev' the
+    // least recently used one.
+    private Node head;
+
+    // Bumped by 'invalidate', so results computed before the cache was invalidated are
+    // never stored.
+    private long generation;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructs an empty cache holding at most the given number of queries.
+     *
+     * @throws IllegalArgumentException if capacity < 1
+     */
+    public QueryCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.nodes = new OpenAddressingDictionary<>();
+        this.head = new Node(null, null);
+        this.head.prev = this.head;
+        this.head.next = this.head;
+        this.generation = 0;
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * Returns the top k results of the given query: the cached copy if there is one, and
+     * otherwise whatever the given function returns, which is then cached.
+     *
+     * Each call returns a new list, so callers are free to modify it.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public IList<Result> getOrCompute(IList<String> query, int k, QueryFunction function) {
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        Key key = new Key(query, k);
+        long startGeneration;
+        synchronized (this) {
+            Node node = this.nodes.getOrDefault(key, null);
+            if (node != null) {
+                this.hits++;
+                this.unlink(node);
+                this.linkFirst(node);
+                return copyOf(node.results);
+            }
+            this.misses++;
+            startGeneration = this.generation;
+        }
+
+        Result[] results = toArray(function.apply(query, k));
+        synchronized (this) {
+            if (startGeneration == this.generation && !this.nodes.containsKey(key)) {
+                this.insert(key, results);
+            }
+        }
+        return copyOf(results);
+    }
+
+    /**
+     * Caches the given results as the top k results of the given query, replacing any
+     * already cached, and marks the query as the most recently used.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public void put(IList<String> query, int k, IList<Result> results) {
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        Key key = new Key(query, k);
+        Result[] copy = toArray(results);
+        synchronized (this) {
+            Node existing = this.nodes.getOrDefault(key, null);
+            if (existing != null) {
+                this.unlink(existing);
+                this.nodes.remove(key);
+            }
+            this.insert(key, copy);
+        }
+    }
+
+    /**
+     * Returns up to the given number of cached queries, most recently used first, so the
+     * same queries can be run against a new index before it starts serving.
+     */
+    public synchronized IList<CachedQuery> recentQueries(int limit) {
+        IList<CachedQuery> queries = new GrowableArrayList<>(Math.min(limit, this.nodes.size()));
+        for (Node node = this.head.next; node != this.head && queries.size() < limit; node = node.next) {
+            IList<String> words = new GrowableArrayList<>(node.key.words.length);
+            for (String word : node.key.words) {
+                words.add(word);
+            }
+            queries.add(new CachedQuery(words, node.key.k));
+        }
+        return queries;
+    }
+
+    /**
+     * Removes every entry, along with any result still being computed. Call this
+     * whenever the index the results came from changes.
+     */
+    public synchronized void invalidate() {
+        this.nodes = new OpenAddressingDictionary<>();
+        this.head.prev = this.head;
+        this.head.next = this.head;
+        this.generation++;
+    }
+
+    /**
+     * Returns the number of queries currently cached.
+     */
+    public synchronized int size() {
+        return this.nodes.size();
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     */
+    public synchronized long hits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of lookups that had to compute their results.
+     */
+    public synchronized long misses() {
+        return this.misses;
+    }
+
+    /**
+     * Adds a new entry as the most recently used one, evicting the least recently used
+     * entry if the cache is then over capacity. The key must not be cached already.
+     */
+    private void insert(Key key, Result[] results) {
+        Node node = new Node(key, results);
+        this.nodes.put(key, node);
+        this.linkFirst(node);
+        if (this.nodes.size() > this.capacity) {
+            Node eldest = this.head.prev;
+            this.unlink(eldest);
+            this.nodes.remove(eldest.key);
+        }
+    }
+
+    private void linkFirst(Node node) {
+        node.prev = this.head;
+        node.next = this.head.next;
+        this.head.next.prev = node;
+        this.head.next = node;
+    }
+
+    private void unlink(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+    }
+
+    private static Result[] toArray(IList<Result> results) {
+        Result[] array = new Result[results.size()];
+        int i = 0;
+        for (Result result : results) {
+            array[i] = result;
+            i++;
+        }
+        return array;
+    }
+
+    private static IList<Result> copyOf(Result[] results) {
+        IList<Result> copy = new GrowableArrayList<>(results.length);
+        for (Result result : results) {
+            copy.add(result);
+        }
+        return copy;
+    }
+
+    /**
+     * A query found in the cache: its words, in order, and the number of results asked for.
+     */
+    public static final class CachedQuery {
+        private final IList<String> query;
+        private final int k;
+
+        CachedQuery(IList<String> query, int k) {
+            this.query = query;
+            this.k = k;
+        }
+
+        public IList<String> getQuery() {
+            return this.query;
+        }
+
+        public int getK() {
+            return this.k;
+        }
+    }
+
+    /**
+     * The words of a query and the number of results asked for.
+     */
+    private static final class Key {
+        private final String[] words;
+        private final int k;
+        private final int hash;
+
+        Key(IList<String> query, int k) {
+            this.words = new String[query.size()];
+            int i = 0;
+            for (String word : query) {
+                this.words[i] = word;
+                i++;
+            }
+            this.k = k;
+            this.hash = 31 * Arrays.hashCode(this.words) + k;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.k == other.k && Arrays.equals(this.words, other.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    private static class Node {
+        private final Key key;
+        private final Result[] results;
+        private Node prev;
+        private Node next;
+
+        Node(Key key, Result[] results) {
+            this.key = key;
+            this.results = results;
+        }
+    }
+}
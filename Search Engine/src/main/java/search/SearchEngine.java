@@ -1,123 +1,389 @@
 package search;
 
-import datastructures.concrete.ChainedHashSet;
-import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.GrowableArrayList;
 import datastructures.interfaces.IList;
-import datastructures.interfaces.ISet;
-import misc.Searcher;
-import search.analyzers.PageRankAnalyzer;
-import search.analyzers.TfIdfAnalyzer;
+import search.index.IndexablePage;
 import search.misc.Bridge;
+import search.metrics.Histogram;
+import search.metrics.MetricsRegistry;
+import search.misc.Deadline;
+import search.misc.QueryStats;
 import search.misc.exceptions.DataExtractionException;
 import search.models.Result;
-import search.models.Webpage;
-import search.models.WebpageSummary;
 
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 public class SearchEngine {
     public static final double PAGE_RANK_DECAY = 0.85;
     public static final double PAGE_RANK_EPSILON = 0.0001;
     public static final int PAGE_RANK_ITERATION_LIMIT = 200;
 
-    private ISet<WebpageSummary> pages;
-    private TfIdfAnalyzer tfIdfAnalyzer;
-    private PageRankAnalyzer pageRankAnalyzer;
+    // The number of threads used to build the index.
+    public static final int INDEXING_THREADS = Runtime.getRuntime().availableProcessors();
 
+    // The number of threads used to load webpages, and how many loaded pages may wait
+    // to be added to the index before the loading threads pause.
+    public static final int LOADING_THREADS = Runtime.getRuntime().availableProcessors();
+    public static final int LOADING_QUEUE_CAPACITY = 64;
+
+    // The number of shards the index is split into, and the number of threads each
+    // query searches them on.
+    public static final int INDEX_SHARDS = Runtime.getRuntime().availableProcessors();
+    public static final int QUERY_THREADS = Runtime.getRuntime().availableProcessors();
+
+    // The number of queries whose results we keep around in case they are asked again.
+    public static final int QUERY_CACHE_SIZE = 1024;
+
+    // The number of recently cached queries a new index answers before it replaces the
+    // old one, so its first real queries find its pages in memory and its results cached.
+    public static final int WARMUP_QUERIES = 256;
+
+    // The index of each data folder is saved next to it, in a file with this extension.
+    public static final String INDEX_FILE_EXTENSION = ".index";
+
+    private final Path root;
+    private final Path indexFile;
+
+    // Queries read the index once, when they start, and use that same index until they
+    // finish, so an index can be replaced while queries are running on it.
+    private final AtomicReference<SearchIndex> index;
+    private final ForkJoinPool queryPool;
+    private final QueryCache queryCache;
+
+    private final MetricsRegistry metrics;
+    private final Histogram scoreLatency;
+    private final Histogram topKLatency;
+    private final Histogram documentsScored;
+
+    // Held for the whole of 'reindex', so two reindexes never write the index file at once.
+    private final Object reindexLock;
+
+    // Runs 'reindexInBackground'. Only ever holds one task at a time: 'pendingReindex'.
+    private final ExecutorService reindexer;
+    private CompletableFuture<Void> pendingReindex;
+
+    /**
+     * Constructs a search engine over every webpage in the given folder inside 'data'.
+     *
+     * If the index saved by a previous run was built from exactly the same webpages, we
+     * load it instead of indexing every page again. Otherwise, we build a fresh index
+     * and save it for next time.
+     *
+     * Call 'reindex' or 'reindexInBackground' to pick up any changes to the folder later
+     * on, without creating a new search engine.
+     */
     public SearchEngine(String dataFolderName) {
+        this(Paths.get("data", dataFolderName), Paths.get("data", dataFolderName + INDEX_FILE_EXTENSION));
+    }
+
+    /**
+     * Constructs a search engine over every webpage in the given folder, saving its index
+     * to (or loading it from) the given file.
+     */
+    public SearchEngine(Path root, Path indexFile) {
+        this.root = root;
+        this.indexFile = indexFile;
+        this.index = new AtomicReference<>();
+        this.queryPool = new ForkJoinPool(QUERY_THREADS);
+        this.queryCache = new QueryCache(QUERY_CACHE_SIZE);
+
+        this.metrics = new MetricsRegistry();
+        this.scoreLatency = this.metrics.latency("search_stage_latency_seconds",
+                "Time spent on each stage of answering a query.", "stage", "score");
+        this.topKLatency = this.metrics.latency("search_stage_latency_seconds",
+                "Time spent on each stage of answering a query.", "stage", "topk");
+        this.documentsScored = this.metrics.distribution("search_documents_scored",
+                "Number of documents scored per query that missed the cache.");
+        this.metrics.counter("search_query_cache_hits_total",
+                "Number of queries answered from the cache.", this.queryCache::hits);
+        this.metrics.counter("search_query_cache_misses_total",
+                "Number of queries whose results had to be computed.", this.queryCache::misses);
+        this.metrics.gauge("search_index_documents",
+                "Number of webpages in the index currently answering queries.", () -> this.index.get().size());
+
+        this.reindexer = Executors.newSingleThreadExecutor(task -> {
+            // A reindex that is still running should never keep the program alive.
+            Thread thread = new Thread(task, "reindexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reindexLock = new Object();
+        this.pendingReindex = null;
+
+        this.useIndex(this.openIndex());
+    }
+
+    /**
+     * Loads or builds an index over the webpages currently in this engine's folder,
+     * answers the most recently cached queries with it, and then starts answering every
+     * new query with it instead of the old one.
+     *
+     * Queries already running when the new index takes over finish on the old index.
+     * The cache is refilled with the new index's answers to the queries it warmed up on,
+     * and everything else cached from the old index is dropped.
+     *
+     * Only one reindex runs at a time: calling this while another is running waits until
+     * it is done.
+     *
+     * @throws DataExtractionException if the folder or its webpages cannot be read, in
+     *                                 which case the old index keeps answering queries
+     */
+    public void reindex() {
+        synchronized (this.reindexLock) {
+            SearchIndex fresh = this.openIndex();
+            fresh.setQueryPool(this.queryPool);
+
+            long start = System.currentTimeMillis();
+            IList<QueryCache.CachedQuery> warmup = this.queryCache.recentQueries(WARMUP_QUERIES);
+            IList<IList<Result>> warmResults = new GrowableArrayList<>(warmup.size());
+            for (QueryCache.CachedQuery query : warmup) {
+                warmResults.add(fresh.getTopKResults(query.getQuery(), query.getK()));
+            }
+            long end = System.currentTimeMillis() - start;
+            System.out.println("Done warming up new index with " + warmup.size() + " queries ("
+                    + (end / 1000.0) + " sec)");
+            this.recordPhase("warm_up", end);
+
+            this.useIndex(fresh);
+            Iterator<IList<Result>> results = warmResults.iterator();
+            for (QueryCache.CachedQuery query : warmup) {
+                this.queryCache.put(query.getQuery(), query.getK(), results.next());
+            }
+        }
+    }
+
+    /**
+     * Starts running 'reindex' on a background thread, and returns a future that completes
+     * once the new index is answering queries (or completes exceptionally if reindexing
+     * fails). If a reindex started by this method is still running, returns its future
+     * instead of starting another one.
+     */
+    public synchronized CompletableFuture<Void> reindexInBackground() {
+        if (this.pendingReindex == null || this.pendingReindex.isDone()) {
+            this.pendingReindex = CompletableFuture.runAsync(this::reindex, this.reindexer);
+        }
+        return this.pendingReindex;
+    }
+
+    /**
+     * Returns the index of the webpages currently in this engine's folder: the saved one
+     * if it was built from exactly those webpages, or a freshly built one (which is then
+     * saved, and served from the saved copy) otherwise.
+     */
+    private SearchIndex openIndex() {
         long start = System.currentTimeMillis();
-        ISet<Webpage> webpages = this.collectWebpages(Paths.get("data", dataFolderName));
+        IList<Path> pagePaths = this.findWebpages(this.root);
+        long fingerprint = this.computeFingerprint(pagePaths);
+        if (Files.exists(this.indexFile)) {
+            try {
+                SearchIndex loaded = SearchIndex.load(this.indexFile, fingerprint);
+                long end = System.currentTimeMillis() - start;
+                System.out.println("Done loading saved index (" + (end / 1000.0) + " sec)");
+                this.recordPhase("load_saved_index", end);
+                return loaded;
+            } catch (IOException ex) {
+                System.out.println("Could not use saved index, rebuilding it: " + ex.getMessage());
+            }
+        }
+
+        IndexablePage[] pages = this.collectPages(pagePaths);
         long end = System.currentTimeMillis() - start;
         System.out.println("Done loading pages (" + (end / 1000.0) + " sec)");
-
-        this.pages = this.extractWebpageSummaries(webpages);
-        System.out.println("Done extracting");
+        this.recordPhase("load_pages", end);
 
         start = System.currentTimeMillis();
-        this.tfIdfAnalyzer = new TfIdfAnalyzer(webpages);
-        this.pageRankAnalyzer = new PageRankAnalyzer(
-                webpages,
+        ForkJoinPool pool = new ForkJoinPool(INDEXING_THREADS);
+        SearchIndex built = SearchIndex.build(
+                pages,
+                INDEX_SHARDS,
                 PAGE_RANK_DECAY,
                 PAGE_RANK_EPSILON,
-                PAGE_RANK_ITERATION_LIMIT);
+                PAGE_RANK_ITERATION_LIMIT,
+                pool);
+        pool.shutdown();
         end = System.currentTimeMillis() - start;
         System.out.println("Done indexing (" + (end / 1000.0) + " sec)");
-    }
+        this.recordPhase("build_index", end);
 
-    public double computeScore(IList<String> query, URI uri) {
-        double tfIdf = this.tfIdfAnalyzer.computeRelevance(query, uri);
-        double pageRank = this.pageRankAnalyzer.computePageRank(uri);
-
-        if (pageRank <= 0.0) {
-            throw new IllegalStateException(String.format(
-                    "Page '%s' had a page rank of '%f'; all page ranks should be positive and non-zero.",
-                    uri, pageRank));
+        // Once the index is saved, we serve queries from the saved copy instead: it is
+        // mapped into memory rather than living on the heap, and can be shared with any
+        // other process serving the same data.
+        try {
+            start = System.currentTimeMillis();
+            built.save(this.indexFile, fingerprint);
+            SearchIndex saved = SearchIndex.load(this.indexFile, fingerprint);
+            this.recordPhase("save_index", System.currentTimeMillis() - start);
+            return saved;
+        } catch (IOException ex) {
+            System.out.println("Could not save index: " + ex.getMessage());
+            return built;
         }
+    }
 
-        // We are combining these two scores in a fairly arbitrary way.
-        // The correct thing to do is to apply machine learning and develop
-        // a classifier that combines these two scores.
-        //
-        // Figuring out the best way to do this is something of a black art
-        // and is a part of the "secret sauce" of commercial web engines.
-        //
-        // However, in the interests of simplicity, we opted not to do that
-        // and just experimented with formulas until we found that seemed to
-        // work well.
-        //
-        // The intuition here is that the pageRank for any given page tends
-        // to be skewed -- popular pages tend to have abnormally high
-        // ranks, other pages have very small ones. So, we take the square
-        // root to "normalize" these extremes, then multiply it against
-        // the tfIdf score to scale it accordingly.
-        //
-        // That's the underlying justification for why we chose this formula,
-        // but it's still a pretty ad-hoc approach. Feel free to adjust or
-        // change this formula: we will be grading your TfIdfAnalyzer and
-        // PageRankAnalyzer classes separately, but not this method.
-        return tfIdf * Math.sqrt(pageRank);
+    public double computeScore(IList<String> query, URI uri) {
+        return this.index.get().computeScore(query, uri);
     }
 
+    /**
+     * Returns the k pages with the highest score for the given query, highest score first.
+     *
+     * Only pages sharing at least one word with the query are returned. Each result's score
+     * is the same one 'computeScore' would return for it.
+     *
+     * Repeated queries are answered from a cache of recent results.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
     public IList<Result> getTopKResults(IList<String> query, int k) {
-        IList<Result> results = new DoubleLinkedList<>();
+        return this.getTopKResults(query, k, Deadline.NONE, new QueryStats());
+    }
 
-        for (WebpageSummary summary: this.pages) {
-            double score = this.computeScore(query, summary.getUri());
-            results.add(new Result(summary, score));
+    /**
+     * Does the same as 'getTopKResults' above, but gives up once the given deadline passes.
+     * Results that are already cached are returned no matter how late it is.
+     *
+     * Records whether the results were cached, how long each stage of the search took, and
+     * how many documents were scored in the given stats, and in this engine's metrics.
+     *
+     * @throws IllegalArgumentException                     if k < 0
+     * @throws search.misc.exceptions.QueryTimeoutException if the deadline passes
+     */
+    public IList<Result> getTopKResults(IList<String> query, int k, Deadline deadline, QueryStats stats) {
+        // The index is read only once the cache has missed, so a result computed with an
+        // index that has since been replaced can never be cached. (See 'useIndex'.)
+        IList<Result> results = this.queryCache.getOrCompute(query, k, (terms, limit) -> {
+            stats.markComputed();
+            return this.index.get().getTopKResults(terms, limit, deadline, stats);
+        });
+        if (stats.wasComputed()) {
+            this.scoreLatency.record(stats.getScoreNanos());
+            this.topKLatency.record(stats.getTopKNanos());
+            this.documentsScored.record(stats.getDocumentsScored());
         }
+        return results;
+    }
 
-        IList<Result> topK = Searcher.topKSort(k, results);
+    /**
+     * Returns the cache of recent query results, so callers can see how often it helps.
+     */
+    public QueryCache getQueryCache() {
+        return this.queryCache;
+    }
 
-        IList<Result> reversed = new DoubleLinkedList<>();
-        for (Result res : topK) {
-            reversed.insert(0, res);
-        }
+    /**
+     * Returns the metrics this engine keeps: query stage latencies, documents scored, cache
+     * hits and misses, and how long each phase of the last index build took. Callers may
+     * register metrics of their own here too.
+     */
+    public MetricsRegistry getMetrics() {
+        return this.metrics;
+    }
 
-        return reversed;
+    /**
+     * Starts answering queries with the given index, dropping every result cached from
+     * the previous one.
+     *
+     * The index is replaced before the cache is invalidated. Any query that read the old
+     * index did so before that, so whatever it computes is turned away by the cache.
+     */
+    private void useIndex(SearchIndex newIndex) {
+        newIndex.setQueryPool(this.queryPool);
+        this.index.set(newIndex);
+        this.queryCache.invalidate();
     }
 
-    private ISet<Webpage> collectWebpages(Path root) {
-        try {
-            return Files.walk(root)
+    /**
+     * Records how long the given phase of loading or building an index took.
+     */
+    private void recordPhase(String phase, long millis) {
+        this.metrics.gauge("search_index_phase_seconds",
+                "Time the latest run of each phase of loading or building an index took.", "phase", phase)
+                .set(millis / 1000.0);
+    }
+
+    /**
+     * Returns the path of every webpage inside the given folder, sorted so the same
+     * folder always produces the same list.
+     */
+    private IList<Path> findWebpages(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths
                     .filter(Files::isRegularFile)
                     .filter(path -> path.toString().endsWith(".htm") || path.toString().endsWith(".html"))
-                    .map(Path::toUri)
-                    .map(Webpage::load)
-                    .collect(Bridge.toISet());
+                    .sorted()
+                    .collect(Bridge.toIList());
         } catch (IOException ex) {
             throw new DataExtractionException("Could not find given root folder", ex);
         }
     }
 
-    private ISet<WebpageSummary> extractWebpageSummaries(ISet<Webpage> webpages) {
-        ISet<WebpageSummary> output = new ChainedHashSet<>();
-        for (Webpage page : webpages) {
-            output.add(page.getSummary());
+    /**
+     * Returns a fingerprint of the given webpages: their paths, sizes and modification
+     * times, along with the number of shards and the parameters we compute page ranks
+     * with. If any page is added, removed or modified, or a parameter changes, the
+     * fingerprint changes too, so an index saved with the old fingerprint is no longer
+     * used.
+     */
+    private long computeFingerprint(IList<Path> pagePaths) {
+        long fingerprint = mixFingerprint(0, INDEX_SHARDS);
+        fingerprint = mixFingerprint(fingerprint, Double.doubleToLongBits(PAGE_RANK_DECAY));
+        fingerprint = mixFingerprint(fingerprint, Double.doubleToLongBits(PAGE_RANK_EPSILON));
+        fingerprint = mixFingerprint(fingerprint, PAGE_RANK_ITERATION_LIMIT);
+        try {
+            for (Path path : pagePaths) {
+                fingerprint = mixFingerprint(fingerprint, path.toString());
+                fingerprint = mixFingerprint(fingerprint, Files.size(path));
+                fingerprint = mixFingerprint(fingerprint, Files.getLastModifiedTime(path).toMillis());
+            }
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not read webpage attributes", ex);
         }
-        return output;
+        return fingerprint;
+    }
+
+    /**
+     * Returns a new fingerprint combining the given fingerprint with every character of
+     * the given string. The length goes in last, so two strings next to each other can
+     * never be confused with the same characters split up differently.
+     */
+    private static long mixFingerprint(long fingerprint, String value) {
+        long mixed = fingerprint;
+        for (int i = 0; i < value.length(); i++) {
+            mixed = mixFingerprint(mixed, value.charAt(i));
+        }
+        return mixFingerprint(mixed, value.length());
+    }
+
+    /**
+     * Returns a new fingerprint combining the given fingerprint with the given value.
+     */
+    private static long mixFingerprint(long fingerprint, long value) {
+        // The multiplier is the 64-bit FNV prime; the final xor-shift spreads the high
+        // bits back into the low ones.
+        long mixed = (fingerprint ^ value) * 0x100000001B3L;
+        return mixed ^ (mixed >>> 29);
+    }
+
+    /**
+     * Loads the webpage at every one of the given paths, keeping only what the index needs
+     * of each. The page loaded from the i-th path is at index i of the returned array.
+     */
+    private IndexablePage[] collectPages(IList<Path> pagePaths) {
+        IndexablePage[] pages = new IndexablePage[pagePaths.size()];
+        new PageLoader(LOADING_THREADS, LOADING_QUEUE_CAPACITY).load(pagePaths, (index, page) -> {
+            pages[index] = page;
+        });
+        return pages;
     }
 }
@@ -0,0 +1,319 @@
+package search;
+
+import datastructures.concrete.GrowableArrayList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.analyzers.PageRankAnalyzer;
+import search.analyzers.PreparedQuery;
+import search.analyzers.TfIdfAnalyzer;
+import search.index.DocumentBoosts;
+import search.index.DocumentRegistry;
+import search.index.DocumentTerms;
+import search.index.IndexablePage;
+import search.misc.Deadline;
+import search.misc.QueryStats;
+import search.models.Result;
+import search.models.Webpage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Everything needed to answer queries over one set of webpages: the registry of pages,
+ * the TF-IDF and page rank analyzers, and the boost each page's rank gives its score.
+ *
+ * An index can either be built from the webpages themselves, or saved to a file and
+ * loaded back later without looking at a single webpage.
+ *
+ * The file starts with a header holding a magic number, the format version, and a
+ * fingerprint of the data the index was built from, followed by the registry and the
+ * two analyzers, each written by its own 'writeTo' method.
+ *
+ * Loading an index maps the file into memory rather than reading it. The registry,
+ * analyzers and postings are views over the mapping, so loading takes about as long
+ * as it takes to map the file, pages are only read from disk once a query needs them,
+ * and every process serving the same file shares one copy of it in the OS page cache.
+ */
+public class SearchIndex {
+    // The first four bytes of every index file ("SIDX").
+    private static final int MAGIC = 0x53494458;
+
+    // Bump this whenever the layout of the file changes, so old files get rebuilt
+    // instead of misread.
+    private static final int FORMAT_VERSION = 3;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private DocumentRegistry registry;
+    private TfIdfAnalyzer tfIdfAnalyzer;
+    private PageRankAnalyzer pageRankAnalyzer;
+
+    // The square root of every page's page rank, indexed by document id. See
+    // 'combineScores' for why we multiply relevance by this.
+    private DocumentBoosts pageRankBoosts;
+
+    // The pool queries search the analyzer's shards on, or null to search them all on
+    // the calling thread.
+    private ForkJoinPool queryPool;
+
+    private SearchIndex(DocumentRegistry registry, TfIdfAnalyzer tfIdfAnalyzer, PageRankAnalyzer pageRankAnalyzer) {
+        this.registry = registry;
+        this.tfIdfAnalyzer = tfIdfAnalyzer;
+        this.pageRankAnalyzer = pageRankAnalyzer;
+        this.pageRankBoosts = this.computePageRankBoosts();
+    }
+
+    /**
+     * Builds an index over the given webpages, splitting the work across the threads of
+     * the given pool. If the pool is null, everything runs on the calling thread instead.
+     */
+    public static SearchIndex build(ISet<Webpage> webpages, double decay, double epsilon, int limit,
+                                    ForkJoinPool pool) {
+        DocumentRegistry registry = new DocumentRegistry(webpages);
+        TfIdfAnalyzer tfIdfAnalyzer = new TfIdfAnalyzer(webpages, registry, pool);
+        PageRankAnalyzer pageRankAnalyzer = new PageRankAnalyzer(webpages, registry, decay, epsilon, limit, pool);
+        return new SearchIndex(registry, tfIdfAnalyzer, pageRankAnalyzer);
+    }
+
+    /**
+     * Builds an index over the given pages, splitting the work across the threads of the
+     * given pool. If the pool is null, everything runs on the calling thread instead.
+     *
+     * Pages get their ids in the order of the array, so the same pages in the same order
+     * always produce the same index. If several pages share a URI, only the first is used.
+     * Null entries are skipped.
+     *
+     * The pages are split into the given number of shards, which queries can search in
+     * parallel (see 'setQueryPool').
+     *
+     * @throws IllegalArgumentException if numShards < 1
+     */
+    public static SearchIndex build(IndexablePage[] pages, int numShards, double decay, double epsilon, int limit,
+                                    ForkJoinPool pool) {
+        DocumentRegistry registry = new DocumentRegistry();
+        DocumentTerms[] documents = new DocumentTerms[pages.length];
+        URI[][] links = new URI[pages.length][];
+        for (IndexablePage page : pages) {
+            if (page != null) {
+                int docId = registry.register(page.getSummary());
+                if (documents[docId] == null) {
+                    documents[docId] = page.getTerms();
+                    links[docId] = page.getLinks();
+                }
+            }
+        }
+        documents = Arrays.copyOf(documents, registry.size());
+        links = Arrays.copyOf(links, registry.size());
+
+        TfIdfAnalyzer tfIdfAnalyzer = new TfIdfAnalyzer(registry, documents, numShards, pool);
+        PageRankAnalyzer pageRankAnalyzer = new PageRankAnalyzer(registry, links, decay, epsilon, limit, pool);
+        return new SearchIndex(registry, tfIdfAnalyzer, pageRankAnalyzer);
+    }
+
+    /**
+     * Loads an index saved by 'save' by mapping the file into memory. The file can be
+     * closed straight away: the mapping stays valid until it is garbage-collected.
+     *
+     * @throws IOException if the file cannot be read, was written in a different format,
+     *                     was saved with a different fingerprint, is corrupt, or is larger
+     *                     than 2GB (the most a single mapping can hold)
+     */
+    public static SearchIndex load(Path file, long expectedFingerprint) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Index file is too large to map");
+            }
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not an index file");
+            }
+            int version = in.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported index format version " + version);
+            }
+            if (in.getLong() != expectedFingerprint) {
+                throw new IOException("Index was built from different data");
+            }
+
+            DocumentRegistry registry = DocumentRegistry.readFrom(in);
+            TfIdfAnalyzer tfIdfAnalyzer = TfIdfAnalyzer.readFrom(in, registry);
+            PageRankAnalyzer pageRankAnalyzer = PageRankAnalyzer.readFrom(in, registry);
+            if (in.hasRemaining()) {
+                throw new IOException("Corrupt index: unexpected data after the end");
+            }
+            return new SearchIndex(registry, tfIdfAnalyzer, pageRankAnalyzer);
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("Corrupt index: file ended early", ex);
+        }
+    }
+
+    /**
+     * Saves this index to the given file, tagged with the given fingerprint.
+     *
+     * The index is first written to a temporary file next to the given one, which then
+     * replaces it, so a crash halfway through never leaves a truncated index behind.
+     */
+    public void save(Path file, long fingerprint) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(fingerprint);
+            this.registry.writeTo(out);
+            this.tfIdfAnalyzer.writeTo(out);
+            this.pageRankAnalyzer.writeTo(out);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Makes queries search the shards of this index in parallel on the threads of the
+     * given pool. If the pool is null, queries search every shard on the calling thread.
+     */
+    public void setQueryPool(ForkJoinPool pool) {
+        this.queryPool = pool;
+    }
+
+    /**
+     * Returns the number of webpages in this index.
+     */
+    public int size() {
+        return this.registry.size();
+    }
+
+    /**
+     * Returns the final score of the page with the given URI for the given query.
+     *
+     * Precondition: the page must be in this index.
+     */
+    public double computeScore(IList<String> query, URI uri) {
+        return this.computeScore(this.prepareQuery(query), uri);
+    }
+
+    /**
+     * Returns the given query with its TF-IDF vector computed, ready to be scored against
+     * many pages of this index with 'computeScore'.
+     */
+    public PreparedQuery prepareQuery(IList<String> query) {
+        return this.tfIdfAnalyzer.prepare(query);
+    }
+
+    /**
+     * Returns the final score of the page with the given URI for the given prepared query.
+     *
+     * Precondition: the page must be in this index.
+     *
+     * @throws IllegalArgumentException  if the query was prepared by a different index
+     */
+    public double computeScore(PreparedQuery query, URI uri) {
+        int docId = this.registry.getId(uri);
+        return this.combineScores(docId, this.tfIdfAnalyzer.computeRelevance(query, docId));
+    }
+
+    /**
+     * Returns the k pages with the highest score for the given query, highest score first.
+     *
+     * Only pages sharing at least one word with the query are returned. Each result's score
+     * is the same one 'computeScore' would return for it.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public IList<Result> getTopKResults(IList<String> query, int k) {
+        return this.getTopKResults(query, k, Deadline.NONE, null);
+    }
+
+    /**
+     * Does the same as 'getTopKResults' above, but gives up once the given deadline passes.
+     *
+     * If the given stats are not null, records how long each stage of the search took,
+     * and how many documents were scored.
+     *
+     * @throws IllegalArgumentException                     if k < 0
+     * @throws search.misc.exceptions.QueryTimeoutException if the deadline passes
+     */
+    public IList<Result> getTopKResults(IList<String> query, int k, Deadline deadline, QueryStats stats) {
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        IList<Result> results = new GrowableArrayList<>();
+
+        // The analyzer multiplies each page's relevance by the square root of its
+        // page rank for us, so it can skip pages that cannot make it into the top k.
+        long startedAt = System.nanoTime();
+        PreparedQuery prepared = this.prepareQuery(query);
+        if (stats != null) {
+            stats.addScoreNanos(System.nanoTime() - startedAt);
+        }
+        this.tfIdfAnalyzer.computeTopScores(prepared, k, this.pageRankBoosts, this.queryPool, deadline, stats,
+                (docId, score) -> {
+                    results.add(new Result(this.registry.getSummary(docId), score));
+                });
+
+        return results;
+    }
+
+    /**
+     * Combines the given TF-IDF relevance with the page rank of the page with the given
+     * id to produce that page's final score.
+     */
+    private double combineScores(int docId, double tfIdf) {
+        double pageRank = this.pageRankAnalyzer.computePageRank(docId);
+
+        if (pageRank <= 0.0) {
+            throw new IllegalStateException(String.format(
+                    "Page '%s' had a page rank of '%f'; all page ranks should be positive and non-zero.",
+                    this.registry.getUri(docId), pageRank));
+        }
+
+        // We are combining these two scores in a fairly arbitrary way.
+        // The correct thing to do is to apply machine learning and develop
+        // a classifier that combines these two scores.
+        //
+        // Figuring out the best way to do this is something of a black art
+        // and is a part of the "secret sauce" of commercial web engines.
+        //
+        // However, in the interests of simplicity, we opted not to do that
+        // and just experimented with formulas until we found that seemed to
+        // work well.
+        //
+        // The intuition here is that the pageRank for any given page tends
+        // to be skewed -- popular pages tend to have abnormally high
+        // ranks, other pages have very small ones. So, we take the square
+        // root to "normalize" these extremes, then multiply it against
+        // the tfIdf score to scale it accordingly.
+        //
+        // That's the underlying justification for why we chose this formula,
+        // but it's still a pretty ad-hoc approach. Feel free to adjust or
+        // change this formula: we will be grading your TfIdfAnalyzer and
+        // PageRankAnalyzer classes separately, but not this method.
+        return tfIdf * Math.sqrt(pageRank);
+    }
+
+    /**
+     * Returns the square root of every page's page rank. (Combining a relevance of 1
+     * with a page's rank gives exactly that, and checks the rank is valid on the way.)
+     */
+    private DocumentBoosts computePageRankBoosts() {
+        double[] boosts = new double[this.registry.size()];
+        for (int docId = 0; docId < boosts.length; docId++) {
+            boosts[docId] = this.combineScores(docId, 1.0);
+        }
+        return new DocumentBoosts(boosts);
+    }
+}
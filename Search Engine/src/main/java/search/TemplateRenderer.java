@@ -0,0 +1,96 @@
+package search;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+import datastructures.concrete.dictionaries.OpenAddressingDictionary;
+import datastructures.interfaces.IDictionary;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+
+/**
+ * Renders the webapp's Mustache templates.
+ *
+ * Normally, every template is loaded from the classpath and compiled once, when the
+ * renderer is constructed, and every request reuses the compiled template. Rendering
+ * writes straight to the given writer, so a page never has to be built up as one big
+ * string first.
+ *
+ * In dev mode, templates are instead read from a folder on disk and compiled again on
+ * every render, so edits to them show up on the next page load without a restart.
+ */
+public class TemplateRenderer {
+    // The folder dev mode reads templates from, or null if we are not in dev mode.
+    private final Path devFolder;
+
+    private final IDictionary<String, Mustache> templates;
+
+    private TemplateRenderer(Path devFolder, IDictionary<String, Mustache> templates) {
+        this.devFolder = devFolder;
+        this.templates = templates;
+    }
+
+    /**
+     * Returns a renderer that compiles each of the named templates, found inside the given
+     * folder on the classpath, right away.
+     *
+     * @throws com.github.mustachejava.MustacheException if any template is missing or
+     *                                                   cannot be compiled
+     */
+    public static TemplateRenderer compile(String resourceRoot, String... names) {
+        DefaultMustacheFactory factory = new DefaultMustacheFactory(resourceRoot);
+        IDictionary<String, Mustache> templates = new OpenAddressingDictionary<>();
+        for (String name : names) {
+            templates.put(name, factory.compile(name));
+        }
+        return new TemplateRenderer(null, templates);
+    }
+
+    /**
+     * Returns a renderer that reads every template from the given folder on disk and
+     * compiles it again each time it is rendered.
+     */
+    public static TemplateRenderer development(Path folder) {
+        return new TemplateRenderer(folder, null);
+    }
+
+    /**
+     * Returns whether this renderer recompiles templates on every render.
+     */
+    public boolean isDevelopment() {
+        return this.devFolder != null;
+    }
+
+    /**
+     * Renders the named template with the given model to the given writer. The writer is
+     * not flushed or closed.
+     *
+     * @throws IllegalArgumentException                 if the template was not compiled by
+     *                                                  this renderer
+     * @throws com.github.mustachejava.MustacheException if writing to the writer fails
+     */
+    public void render(String name, Object model, Writer out) {
+        Mustache template;
+        if (this.devFolder != null) {
+            template = new DefaultMustacheFactory(this.devFolder.toFile()).compile(name);
+        } else {
+            template = this.templates.getOrDefault(name, null);
+            if (template == null) {
+                throw new IllegalArgumentException("Unknown template: " + name);
+            }
+        }
+        template.execute(out, model);
+    }
+
+    /**
+     * Renders the named template with the given model, and returns the result.
+     *
+     * @throws IllegalArgumentException if the template was not compiled by this renderer
+     */
+    public String render(String name, Object model) {
+        StringWriter out = new StringWriter();
+        this.render(name, model, out);
+        return out.toString();
+    }
+}
@@ -1,18 +1,32 @@
 package search;
 
 import datastructures.interfaces.IList;
+import search.metrics.Histogram;
+import search.metrics.MetricsRegistry;
+import search.metrics.SlowQueryLog;
+import search.misc.Deadline;
+import search.misc.JsonWriter;
+import search.misc.QueryStats;
 import search.misc.WordTokenizer;
+import search.misc.exceptions.QueryTimeoutException;
 import search.models.Result;
-import spark.ModelAndView;
 import spark.Request;
 import spark.Response;
 import spark.Service;
-import spark.template.mustache.MustacheTemplateEngine;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Contains all code to manage and serve our website.
@@ -29,22 +43,95 @@ public class Webapp {
      */
     private static final String TEMPLATE_FILES = "webapp/templates";
 
+    /**
+     * Every template we render. They are all compiled once, on startup.
+     */
+    private static final String[] TEMPLATE_NAMES = {"main.mustache", "search.mustache", "error.mustache"};
+
+    /**
+     * If this system property is set to a folder (usually 'src/main/resources/webapp/templates'),
+     * templates are read from there and recompiled on every request instead, so they can
+     * be edited while the webapp is running.
+     */
+    private static final String DEV_TEMPLATES_PROPERTY = "search.templates.dev";
+
+    /**
+     * The most results a single request may ask for, counting the ones skipped by 'offset'.
+     */
+    private static final int MAX_RESULTS = 1000;
+
+    /**
+     * How many seconds we ask clients to wait before retrying a search we turned away.
+     */
+    private static final int RETRY_AFTER_SECONDS = 1;
+
     private final String siteName;
     private final SearchEngine engine;
     private final Service http;
     private final int port;
+    private final TemplateRenderer templates;
+    private final AdmissionController admission;
+    private final long searchTimeoutNanos;
+    private final SlowQueryLog slowQueryLog;
+
+    private final Histogram tokenizeLatency;
+    private final Histogram renderLatency;
+    private final Histogram searchPageLatency;
+    private final Histogram apiSearchLatency;
+    private final MetricsRegistry.Counter searchTimeouts;
 
     /**
      * Creates a new instance of this class.
      *
-     * @param engine    The SearchEngine we will be using to answer user queries
-     * @param siteName  The name of our website
-     * @param port      The port to serve our website on.
+     * @param engine               The SearchEngine we will be using to answer user queries
+     * @param siteName             The name of our website
+     * @param port                 The port to serve our website on.
+     * @param admission            Decides how many searches may run (and wait) at once
+     * @param searchTimeoutMillis  How long a search may take, from the moment it arrives
+     *                             (including any time spent waiting for its turn), before
+     *                             we give up on it
+     * @param slowQueryLog         Where we log searches that took too long
      */
-    public Webapp(SearchEngine engine, String siteName, int port) {
+    public Webapp(SearchEngine engine, String siteName, int port, AdmissionController admission,
+                  long searchTimeoutMillis, SlowQueryLog slowQueryLog) {
         this.engine = engine;
         this.siteName = siteName;
         this.port = port;
+        this.admission = admission;
+        this.searchTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(searchTimeoutMillis);
+        this.slowQueryLog = slowQueryLog;
+
+        // The engine records the stages of a search it runs itself; we add the stages
+        // that happen here, and everything about requests, to the same registry.
+        MetricsRegistry metrics = engine.getMetrics();
+        String stageHelp = "Time spent on each stage of answering a query.";
+        this.tokenizeLatency = metrics.latency("search_stage_latency_seconds", stageHelp, "stage", "tokenize");
+        this.renderLatency = metrics.latency("search_stage_latency_seconds", stageHelp, "stage", "render");
+        String requestHelp = "Time spent answering each search request, from start to finish, "
+                + "including searches that time out or are turned away.";
+        this.searchPageLatency = metrics.latency("search_request_latency_seconds", requestHelp,
+                "endpoint", "/search");
+        this.apiSearchLatency = metrics.latency("search_request_latency_seconds", requestHelp,
+                "endpoint", "/api/search");
+        this.searchTimeouts = metrics.counter("search_timeouts_total",
+                "Number of searches given up on because they ran past their deadline.");
+        metrics.counter("search_rejected_total",
+                "Number of searches turned away because too many were running or waiting.",
+                () -> this.admission.rejected());
+        metrics.gauge("search_in_flight", "Number of searches running right now.",
+                () -> this.admission.inFlight());
+        metrics.gauge("search_queued", "Number of searches waiting for their turn right now.",
+                () -> this.admission.queued());
+        metrics.counter("search_slow_queries_dropped_total",
+                "Number of slow searches left out of the slow query log because its queue was full.",
+                () -> this.slowQueryLog.dropped());
+
+        String devTemplates = System.getProperty(DEV_TEMPLATES_PROPERTY);
+        if (devTemplates != null) {
+            this.templates = TemplateRenderer.development(Paths.get(devTemplates));
+        } else {
+            this.templates = TemplateRenderer.compile(TEMPLATE_FILES, TEMPLATE_NAMES);
+        }
 
         this.http = Service.ignite()
                 .staticFileLocation(STATIC_FILES)
@@ -52,6 +139,9 @@ public class Webapp {
         this.http.initExceptionHandler(this::handleFatalError);
         this.http.get("/", this::handleMain);
         this.http.get("/search", this::handleSearch);
+        this.http.get("/api/search", this::handleApiSearch);
+        this.http.post("/admin/reindex", this::handleReindex);
+        this.http.get("/metrics", this::handleMetrics);
         this.http.exception(Exception.class, this::handleError);
     }
 
@@ -65,32 +155,226 @@ public class Webapp {
     /**
      * Handles all incoming requests for our home page.
      */
-    private String handleMain(Request req, Response res) {
+    private String handleMain(Request req, Response res) throws IOException {
         Map<String, Object> model = new HashMap<>();
         model.put("siteTitle", this.siteName);
 
-        return this.render("main.mustache", model);
+        return this.render(res, "main.mustache", model);
     }
 
     /**
      * Handles all incoming user queries.
      */
-    private String handleSearch(Request req, Response res) {
+    private String handleSearch(Request req, Response res) throws IOException {
+        long startedAt = System.nanoTime();
+        QueryStats stats = new QueryStats();
+
         // Get search query
         String query = req.queryParams("query");
-        int numResults = Integer.parseInt(req.queryParamOrDefault("num_results", "20"));
+        int numResults = this.parseIntParam(req, "num_results", 20);
+        if (numResults > MAX_RESULTS) {
+            throw this.http.halt(400, "Cannot return more than " + MAX_RESULTS + " results");
+        }
+
+        try {
+            // Perform core search
+            IList<String> queryTerms = this.tokenize(query, stats);
+            IList<Result> results = this.search("/search", queryTerms, numResults, stats, startedAt, res);
+
+            // Render results
+            long renderStartedAt = System.nanoTime();
+            Map<String, Object> model = new HashMap<>();
+            model.put("siteTitle", this.siteName);
+            model.put("results", results);
+            model.put("initialQuery", query);
+
+            String body = this.render(res, "search.mustache", model);
+            stats.addRenderNanos(System.nanoTime() - renderStartedAt);
+            this.recordSearch("/search", queryTerms, numResults, stats, startedAt);
+            return body;
+        } finally {
+            // Recorded however the request ends, so searches that time out or are turned
+            // away count towards the latency too.
+            this.searchPageLatency.record(System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * Handles all incoming user queries made through our JSON API.
+     *
+     * Takes the same 'query' and 'num_results' parameters as '/search', plus an 'offset'
+     * (0 by default) giving the number of top results to skip, and responds with:
+     *
+     *     {"query": ..., "offset": ..., "num_results": ...,
+     *      "results": [{"uri": ..., "title": ..., "blurb": ..., "score": ...}, ...]}
+     *
+     * The results are fetched with the same SearchEngine call as '/search', so both share
+     * its cache of recent queries, and are written to the response one at a time as JSON.
+     */
+    private String handleApiSearch(Request req, Response res) throws IOException {
+        long startedAt = System.nanoTime();
+        QueryStats stats = new QueryStats();
+
+        String query = req.queryParams("query");
+        if (query == null) {
+            throw this.http.halt(400, "Missing 'query' parameter");
+        }
+        int offset = this.parseIntParam(req, "offset", 0);
+        int numResults = this.parseIntParam(req, "num_results", 20);
+        if (offset > MAX_RESULTS - numResults) {
+            throw this.http.halt(400, "Cannot return results past the first " + MAX_RESULTS);
+        }
+
+        try {
+            IList<String> queryTerms = this.tokenize(query, stats);
+            IList<Result> results = this.search("/api/search", queryTerms, offset + numResults, stats,
+                    startedAt, res);
+
+            long renderStartedAt = System.nanoTime();
+            res.type("application/json; charset=utf-8");
+            Writer out = new BufferedWriter(new OutputStreamWriter(res.raw().getOutputStream(),
+                    StandardCharsets.UTF_8));
+            JsonWriter json = new JsonWriter(out);
+            json.beginObject()
+                    .name("query").value(query)
+                    .name("offset").value(offset)
+                    .name("num_results").value(numResults)
+                    .name("results").beginArray();
+            int i = 0;
+            for (Result result : results) {
+                if (i >= offset) {
+                    json.beginObject()
+                            .name("uri").value(result.getUri().toString())
+                            .name("title").value(result.getTitle())
+                            .name("blurb").value(result.getBlurb())
+                            .name("score").value(result.getScore())
+                            .endObject();
+                }
+                i++;
+            }
+            json.endArray().endObject();
+            out.flush();
+            stats.addRenderNanos(System.nanoTime() - renderStartedAt);
+            this.recordSearch("/api/search", queryTerms, offset + numResults, stats, startedAt);
+            return "";
+        } finally {
+            this.apiSearchLatency.record(System.nanoTime() - startedAt);
+        }
+    }
 
-        // Perform core search
+    /**
+     * Handles requests for our metrics, written out in the Prometheus text format.
+     */
+    private String handleMetrics(Request req, Response res) throws IOException {
+        res.type("text/plain; version=0.0.4; charset=utf-8");
+        Writer out = new BufferedWriter(new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8));
+        this.engine.getMetrics().writePrometheus(out);
+        out.flush();
+        return "";
+    }
+
+    /**
+     * Handles requests to pick up changes to the webpages we search, without restarting.
+     *
+     * The new index is loaded or built in the background, and takes over from the current
+     * one once it is ready; searches keep being answered in the meantime. Only requests
+     * made from this machine are accepted.
+     */
+    private String handleReindex(Request req, Response res) {
+        if (!this.isFromLoopback(req)) {
+            throw this.http.halt(403, "Reindexing can only be started from this machine");
+        }
+        this.engine.reindexInBackground().whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                System.err.println("ERROR: Reindexing failed; still serving the old index");
+                ex.printStackTrace();
+            } else {
+                System.out.println("Now serving the new index");
+            }
+        });
+        res.status(202);
+        return "Reindexing started";
+    }
+
+    /**
+     * Returns whether the given request was made from this machine.
+     */
+    private boolean isFromLoopback(Request req) {
+        try {
+            return InetAddress.getByName(req.ip()).isLoopbackAddress();
+        } catch (UnknownHostException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Splits the given query into words, and records how long that took in the given stats.
+     */
+    private IList<String> tokenize(String query, QueryStats stats) {
+        long startedAt = System.nanoTime();
         IList<String> queryTerms = WordTokenizer.extract(query);
-        IList<Result> results = this.engine.getTopKResults(queryTerms, numResults);
+        stats.addTokenizeNanos(System.nanoTime() - startedAt);
+        return queryTerms;
+    }
 
-        // Render results
-        Map<String, Object> model = new HashMap<>();
-        model.put("siteTitle", this.siteName);
-        model.put("results", results);
-        model.put("initialQuery", query);
+    /**
+     * Records the stages of a finished search that happen in the webapp in our metrics,
+     * and logs the search if it was slow. How long the whole request took is recorded by
+     * the handler, whether or not the search finishes.
+     */
+    private void recordSearch(String endpoint, IList<String> queryTerms, int k, QueryStats stats, long startedAt) {
+        this.tokenizeLatency.record(stats.getTokenizeNanos());
+        this.renderLatency.record(stats.getRenderNanos());
+        this.slowQueryLog.log(endpoint, queryTerms, k, stats, System.nanoTime() - startedAt);
+    }
 
-        return this.render("search.mustache", model);
+    /**
+     * Returns the top k results for the given query, once the admission controller lets
+     * the search run. Halts with a 503 (and a 'Retry-After' header) if the search is
+     * turned away, or if it does not finish before its deadline.
+     *
+     * Records how the search went in the given stats. A search that is turned away or
+     * runs out of time is logged (if it was slow) before halting, as having timed out.
+     */
+    private IList<Result> search(String endpoint, IList<String> queryTerms, int k, QueryStats stats,
+                                 long startedAt, Response res) {
+        Deadline deadline = Deadline.after(this.searchTimeoutNanos);
+        if (!this.admission.tryEnter(deadline)) {
+            this.slowQueryLog.log(endpoint, queryTerms, k, stats, System.nanoTime() - startedAt, true);
+            res.header("Retry-After", Integer.toString(RETRY_AFTER_SECONDS));
+            throw this.http.halt(503, "Too many searches right now, please try again shortly");
+        }
+        try {
+            return this.engine.getTopKResults(queryTerms, k, deadline, stats);
+        } catch (QueryTimeoutException ex) {
+            this.searchTimeouts.increment();
+            this.slowQueryLog.log(endpoint, queryTerms, k, stats, System.nanoTime() - startedAt, true);
+            res.header("Retry-After", Integer.toString(RETRY_AFTER_SECONDS));
+            throw this.http.halt(503, "Search took too long, please try again shortly");
+        } finally {
+            this.admission.exit();
+        }
+    }
+
+    /**
+     * Returns the value of the given query parameter as a non-negative int, or the given
+     * default if the request doesn't have it. Halts with a 400 if the value is not a
+     * non-negative int.
+     */
+    private int parseIntParam(Request req, String name, int defaultValue) {
+        String value = req.queryParams(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ex) {
+            // Handled below, along with negative values.
+        }
+        throw this.http.halt(400, "'" + name + "' must be a non-negative integer");
     }
 
     /**
@@ -142,11 +426,19 @@ public class Webapp {
         model.put("exception", stackTrace);
 
         res.status(500);
-        res.body(this.render("error.mustache", model));
+        res.body(this.templates.render("error.mustache", model));
     }
 
-    private String render(String templateName, Map<String, Object> params) {
-        return new MustacheTemplateEngine(TEMPLATE_FILES).render(
-                new ModelAndView(params, templateName));
+    /**
+     * Renders the given template straight to the body of the given response, and returns
+     * the empty string for the route to return: the page has already been sent, so there
+     * is nothing left for Spark to write.
+     */
+    private String render(Response res, String templateName, Map<String, Object> params) throws IOException {
+        res.type("text/html; charset=utf-8");
+        Writer out = new BufferedWriter(new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8));
+        this.templates.render(templateName, params, out);
+        out.flush();
+        return "";
     }
 }
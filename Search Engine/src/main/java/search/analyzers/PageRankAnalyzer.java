@@ -1,13 +1,19 @@
 package search.analyzers;
 
-import datastructures.concrete.ChainedHashSet;
-import datastructures.concrete.KVPair;
-import datastructures.concrete.dictionaries.ChainedHashDictionary;
-import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.ISet;
+import search.index.CsrGraph;
+import search.index.DocumentRegistry;
+import search.misc.BinaryIO;
+import search.misc.ParallelRanges;
 import search.models.Webpage;
 
+import java.io.DataOutput;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class is responsible for computing the 'page rank' of all available webpages.
@@ -15,7 +21,15 @@ import java.net.URI;
  * See the spec for more details.
  */
 public class PageRankAnalyzer {
-    private IDictionary<URI, Double> pageRanks;
+    // When computing in parallel, the smallest number of pages we bother
+    // handing to a separate task.
+    private static final int MIN_PAGES_PER_TASK = 1024;
+
+    private DocumentRegistry registry;
+
+    // The page rank of every webpage, indexed by its id in the registry. This is a
+    // buffer so an analyzer read from an index file can use the file directly.
+    private DoubleBuffer pageRanks;
 
     /**
      * Computes a graph representing the internet and computes the page rank of all
@@ -30,58 +44,155 @@ public class PageRankAnalyzer {
      *                  page rank never converges.
      */
     public PageRankAnalyzer(ISet<Webpage> webpages, double decay, double epsilon, int limit) {
-        // Implementation note: We have commented these method calls out so your
-        // search engine doesn't immediately crash when you try running it for the
-        // first time.
-        //
-        // You should uncomment these lines when you're ready to begin working
-        // on this class.
+        this(webpages, new DocumentRegistry(webpages), decay, epsilon, limit);
+    }
+
+    /**
+     * Computes the page rank of all available webpages, identifying each webpage using
+     * the id it was given in the given registry.
+     *
+     * Precondition: every one of the webpages must have been registered.
+     *
+     * @see #PageRankAnalyzer(ISet, double, double, int)
+     */
+    public PageRankAnalyzer(ISet<Webpage> webpages, DocumentRegistry registry,
+                            double decay, double epsilon, int limit) {
+        this(webpages, registry, decay, epsilon, limit, null);
+    }
+
+    /**
+     * Computes the page rank of all available webpages, identifying each webpage using
+     * the id it was given in the given registry, and splitting each iteration across the
+     * threads of the given pool. If the pool is null, everything runs on the calling
+     * thread instead.
+     *
+     * Precondition: every one of the webpages must have been registered.
+     *
+     * @see #PageRankAnalyzer(ISet, double, double, int)
+     */
+    public PageRankAnalyzer(ISet<Webpage> webpages, DocumentRegistry registry,
+                            double decay, double epsilon, int limit, ForkJoinPool pool) {
+        this(registry, collectLinks(webpages, registry), decay, epsilon, limit, pool);
+    }
+
+    /**
+     * Computes the page rank of every registered webpage, given the links found on each of
+     * them: the links of the page with id i must be at index i of the array.
+     *
+     * @see #PageRankAnalyzer(ISet, DocumentRegistry, double, double, int, ForkJoinPool)
+     */
+    public PageRankAnalyzer(DocumentRegistry registry, URI[][] links,
+                            double decay, double epsilon, int limit, ForkJoinPool pool) {
+        this.registry = registry;
 
         // Step 1: Make a graph representing the 'internet'
-        IDictionary<URI, ISet<URI>> graph = this.makeGraph(webpages);
+        CsrGraph graph = this.makeGraph(links);
 
         // Step 2: Use this graph to compute the page rank for each webpage
-        this.pageRanks = this.makePageRanks(graph, decay, limit, epsilon);
+        this.pageRanks = DoubleBuffer.wrap(this.makePageRanks(graph, decay, limit, epsilon, pool));
 
         // Note: we don't store the graph as a field: once we've computed the
         // page ranks, we no longer need it!
     }
 
+    /**
+     * Constructs an analyzer with the given, already computed, page ranks.
+     */
+    private PageRankAnalyzer(DocumentRegistry registry, DoubleBuffer pageRanks) {
+        this.registry = registry;
+        this.pageRanks = pageRanks;
+    }
+
+    /**
+     * Reads the page ranks written by 'writeTo', returning a view over the given buffer
+     * rather than a copy, and moves the buffer past them. The registry must be the one the
+     * analyzer was originally built with (or a copy of it read back from disk).
+     *
+     * @throws IOException if the buffer ends early or does not contain a rank for every page
+     */
+    public static PageRankAnalyzer readFrom(ByteBuffer in, DocumentRegistry registry) throws IOException {
+        DoubleBuffer pageRanks = BinaryIO.sliceDoubles(in);
+        if (pageRanks.limit() != registry.size()) {
+            throw new IOException(
+                    "Corrupt page ranks: expected " + registry.size() + " but found " + pageRanks.limit());
+        }
+        return new PageRankAnalyzer(registry, pageRanks);
+    }
+
+    /**
+     * Writes the page rank of every webpage, in order of id, to the given output.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        BinaryIO.writeDoubles(out, this.pageRanks);
+    }
+
+    /**
+     * Returns the links found on every one of the given webpages, with the links of the
+     * page with id i at index i.
+     */
+    private static URI[][] collectLinks(ISet<Webpage> webpages, DocumentRegistry registry) {
+        URI[][] links = new URI[registry.size()][];
+        for (Webpage page : webpages) {
+            URI[] pageLinks = new URI[page.getLinks().size()];
+            int i = 0;
+            for (URI link : page.getLinks()) {
+                pageLinks[i] = link;
+                i++;
+            }
+            links[registry.getId(page.getUri())] = pageLinks;
+        }
+        return links;
+    }
+
     /**
      * This method converts a set of webpages into an unweighted, directed graph,
-     * in adjacency list form.
+     * in compressed sparse row form, where each vertex is a webpage's id.
      *
      * You may assume that each webpage can be uniquely identified by its URI.
      *
      * Note that a webpage may contain links to other webpages that are *not*
      * included within set of webpages you were given. You should omit these
      * links from your graph: we want the final graph we build to be
-     * entirely "self-contained".
+     * entirely "self-contained". We also omit links from a page to itself,
+     * and count multiple links to the same page only once.
      */
-    private IDictionary<URI, ISet<URI>> makeGraph(ISet<Webpage> webpages) {
-        IDictionary<URI, ISet<URI>> graph = new ChainedHashDictionary<URI, ISet<URI>>();
-        ISet<URI> uri = new ChainedHashSet<URI>();
-        for (Webpage web : webpages) {
-            uri.add(web.getUri());
-        }
-        
-        for (Webpage web : webpages) {
-            ISet<URI> link = new ChainedHashSet<URI>();
-            for (URI edge : web.getLinks()) {
-               if (uri.contains(edge) && edge != web.getUri()) {
-                   link.add(edge);
-               }
+    private CsrGraph makeGraph(URI[][] pageLinks) {
+        int[][] adjacency = new int[this.registry.size()][];
+        for (int source = 0; source < adjacency.length; source++) {
+            URI[] outgoing = pageLinks[source] == null ? new URI[0] : pageLinks[source];
+            int[] links = new int[outgoing.length];
+            int numLinks = 0;
+            for (URI edge : outgoing) {
+                if (this.registry.contains(edge)) {
+                    int target = this.registry.getId(edge);
+                    if (target != source) {
+                        links[numLinks] = target;
+                        numLinks++;
+                    }
+                }
             }
-            graph.put(web.getUri(), link);
-                    
+
+            // Sort the links so duplicates end up next to each other, then drop them.
+            Arrays.sort(links, 0, numLinks);
+            int numUnique = 0;
+            for (int i = 0; i < numLinks; i++) {
+                if (numUnique == 0 || links[i] != links[numUnique - 1]) {
+                    links[numUnique] = links[i];
+                    numUnique++;
+                }
+            }
+            adjacency[source] = Arrays.copyOf(links, numUnique);
         }
-        return graph;
+        return CsrGraph.fromAdjacencyLists(adjacency);
     }
 
     /**
      * Computes the page ranks for all webpages in the graph.
      *
-     * Precondition: assumes 'this.graphs' has previously been initialized.
+     * Each iteration "pulls" rank into every page from the pages linking to it, so
+     * every page's new rank is written by exactly one thread. Pages with no outgoing
+     * links spread their rank evenly over every page; rather than adding that to each
+     * page one dangling page at a time, we total it once per iteration.
      *
      * @param decay     Represents the "decay" factor when computing page rank (see spec).
      * @param epsilon   When the difference in page ranks is less then or equal to this number,
@@ -90,57 +201,64 @@ public class PageRankAnalyzer {
      *                  is meant as a safety valve to prevent us from infinite looping in case our
      *                  page rank never converges.
      */
-    private IDictionary<URI, Double> makePageRanks(IDictionary<URI, ISet<URI>> graph,
-                                                   double decay,
-                                                   int limit,
-                                                   double epsilon) {
+    private double[] makePageRanks(CsrGraph graph, double decay, int limit, double epsilon, ForkJoinPool pool) {
+        int numPages = graph.numVertices();
+        CsrGraph incoming = graph.transpose();
+
         // Step 1: The initialize step should go here
-        IDictionary<URI, Double> rank = new ChainedHashDictionary<URI, Double>();
-        double initialWeight = 1.0/graph.size();
-        for (KVPair<URI, ISet<URI>> web : graph) {
-            rank.put(web.getKey(), initialWeight);
-        }
+        double[] rank = new double[numPages];
+        Arrays.fill(rank, 1.0 / numPages);
+        double[] newRank = new double[numPages];
+        double[] shares = new double[numPages];
+
         for (int i = 0; i < limit; i++) {
             // Step 2: The update step should go here
-            IDictionary<URI, Double> newRank = new ChainedHashDictionary<URI, Double>();
-            for (KVPair<URI, ISet<URI>> web : graph) {
-                newRank.put(web.getKey(), 0.0);
-            }
-            for (KVPair<URI, ISet<URI>> web : graph) {
-                double oldRank = rank.get(web.getKey());
-                if (web.getValue().size() == 0) {
-                    for (KVPair<URI, Double> page : rank) {
-                        newRank.put(page.getKey(), newRank.get(page.getKey()) + decay * (oldRank / graph.size()));
+            //
+            // First, work out how much rank each page passes to each page it links to,
+            // totalling up the rank held by dangling pages along the way.
+            double[] oldRank = rank;
+            double danglingRank = ParallelRanges.reduce(pool, 0, numPages, MIN_PAGES_PER_TASK, (start, end) -> {
+                double total = 0.0;
+                for (int page = start; page < end; page++) {
+                    int degree = graph.degree(page);
+                    if (degree == 0) {
+                        shares[page] = 0.0;
+                        total += oldRank[page];
+                    } else {
+                        shares[page] = oldRank[page] / degree;
                     }
-                } else {
-                    for (URI link : web.getValue()) {
-                        newRank.put(link, newRank.get(link) + decay * oldRank / web.getValue().size());
+                }
+                return total;
+            }, Double::sum);
+
+            // Then, pull those shares into every page, finding the largest change.
+            double base = (1 - decay) / numPages + decay * danglingRank / numPages;
+            double[] updated = newRank;
+            double maxDifference = ParallelRanges.reduce(pool, 0, numPages, MIN_PAGES_PER_TASK, (start, end) -> {
+                double largest = 0.0;
+                for (int page = start; page < end; page++) {
+                    double total = 0.0;
+                    for (int edge = incoming.firstEdge(page); edge < incoming.endEdge(page); edge++) {
+                        total += shares[incoming.getTarget(edge)];
                     }
-                    
+                    updated[page] = base + decay * total;
+                    largest = Math.max(largest, Math.abs(updated[page] - oldRank[page]));
                 }
-                
-                newRank.put(web.getKey(), newRank.get(web.getKey()) + (1-decay)/graph.size());
-            }
+                return largest;
+            }, Math::max);
+
             // Step 3: the convergence step should go here.
             // Return early if we've converged.
-            boolean allConverge = true;
-            for (KVPair<URI, Double> page : rank){
-                double difference = Math.abs(newRank.get(page.getKey()) - rank.get(page.getKey()));
-                if (difference > epsilon) {
-                    allConverge = false;
-                    break;
-                }
-            }
-            if (allConverge) {
+            if (maxDifference <= epsilon) {
                 return rank;
-            } else {
-                rank = newRank;
             }
+            newRank = rank;
+            rank = updated;
         }
         return rank;
     }
 
-    /** 
+    /**
      * Returns the page rank of the given URI.
      *
      * Precondition: the given uri must have been one of the uris within the list of
@@ -148,6 +266,15 @@ public class PageRankAnalyzer {
      */
     public double computePageRank(URI pageUri) {
         // Implementation note: this method should be very simple: just one line!
-        return pageRanks.get(pageUri);
+        return this.computePageRank(this.registry.getId(pageUri));
+    }
+
+    /**
+     * Returns the page rank of the webpage with the given id in the registry.
+     *
+     * Precondition: the given id must belong to one of the webpages given to the constructor.
+     */
+    public double computePageRank(int docId) {
+        return this.pageRanks.get(docId);
     }
 }
@@ -0,0 +1,52 @@
+package search.analyzers;
+
+/**
+ * A query whose TF-IDF vector and norm have already been computed by a TfIdfAnalyzer,
+ * so it can be scored against any number of documents without redoing that work.
+ *
+ * Only the query's words that appear in some document are kept, each once, along with
+ * its weight in the query vector multiplied by the number of times it appears in the
+ * query. Multiplying that by the word's weight in a document gives the word's whole
+ * contribution to the dot product of the two vectors.
+ *
+ * A prepared query can only be used with the analyzer that prepared it.
+ */
+public final class PreparedQuery {
+    private final TfIdfAnalyzer analyzer;
+    private final int[] termIds;
+    private final double[] wordScores;
+    private final double norm;
+
+    PreparedQuery(TfIdfAnalyzer analyzer, int[] termIds, double[] wordScores, double norm) {
+        this.analyzer = analyzer;
+        this.termIds = termIds;
+        this.wordScores = wordScores;
+        this.norm = norm;
+    }
+
+    /**
+     * Returns the number of distinct query words that appear in some document.
+     */
+    public int numTerms() {
+        return this.termIds.length;
+    }
+
+    /**
+     * Returns the euclidean norm of the query's TF-IDF vector.
+     */
+    public double norm() {
+        return this.norm;
+    }
+
+    TfIdfAnalyzer analyzer() {
+        return this.analyzer;
+    }
+
+    int[] termIds() {
+        return this.termIds;
+    }
+
+    double[] wordScores() {
+        return this.wordScores;
+    }
+}
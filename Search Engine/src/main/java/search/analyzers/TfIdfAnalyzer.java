@@ -1,14 +1,36 @@
 package search.analyzers;
 
-import datastructures.concrete.ChainedHashSet;
 import datastructures.concrete.KVPair;
-import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.IntDoubleDictionary;
+import datastructures.concrete.dictionaries.ObjectDoubleDictionary;
 import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
+import search.index.DocumentBoosts;
+import search.index.DocumentRegistry;
+import search.index.DocumentTerms;
+import search.index.InvertedIndex;
+import search.index.PostingsCursor;
+import search.index.ScoreConsumer;
+import search.index.SharedThreshold;
+import search.index.StringTable;
+import search.index.TopKDoubleHeap;
+import search.index.WandEvaluator;
+import search.misc.BinaryIO;
+import search.misc.Deadline;
+import search.misc.DictionaryBackend;
+import search.misc.ParallelRanges;
+import search.misc.QueryStats;
 import search.models.Webpage;
 
+import java.io.DataOutput;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class is responsible for computing how "relevant" any given document is
@@ -17,122 +39,419 @@ import java.net.URI;
  * See the spec for more details.
  */
 public class TfIdfAnalyzer {
-    // This field must contain the IDF score for every single word in all
-    // the documents.
-    private IDictionary<String, Double> idfScores;
+    // When building in parallel, the smallest number of documents we bother
+    // handing to a separate task.
+    private static final int MIN_DOCUMENTS_PER_TASK = 64;
+
+    // Assigns each webpage the integer id we use to index the arrays below.
+    private DocumentRegistry registry;
 
-    // This field must contain the TF-IDF vector for each webpage you were given
-    // in the constructor.
+    // Every single word in all the documents. A word's index in this table is
+    // its term id.
+    private StringTable terms;
+
+    // This field must contain the IDF score for every single word in all
+    // the documents, indexed by term id.
     //
-    // We will use each webpage's page URI as a unique key.
-    private IDictionary<URI, IDictionary<String, Double>> documentTfIdfVectors;
-    private IDictionary<URI, Double> documentNorm;
+    // This and the other per-term and per-document values are kept in buffers
+    // rather than arrays so an analyzer read from an index file can use the
+    // (memory-mapped) file directly; a freshly built analyzer simply wraps arrays.
+    private DoubleBuffer idfScores;
 
-    // Feel free to add extra fields and helper methods.
+    // The largest value any word's TF-IDF weight takes on in any document, after
+    // dividing by that document's norm. This bounds how much the word can add to
+    // the cosine similarity between a query and any document.
+    private DoubleBuffer maxNormalizedWeights;
+
+    // The number of words in, and the norm of the TF-IDF vector of, each
+    // webpage you were given in the constructor, indexed by document id.
+    private IntBuffer documentLengths;
+    private DoubleBuffer documentNorms;
+
+    // Maps each word to every document containing it, so queries only need to
+    // look at documents that share at least one word with the query.
+    //
+    // The postings store how often each word appears in each document. Together
+    // with the document's length and the word's IDF score, that is enough to
+    // recompute the word's exact TF-IDF weight, so the index doubles as our
+    // store of every document's TF-IDF vector.
+    //
+    // The documents are split into shards of consecutive ids, each with its own
+    // index, so a query can search every shard at once on a different thread.
+    // Shard i holds the documents with ids from shardStarts[i] up to (but not
+    // including) shardStarts[i + 1]. Everything else, including the IDF scores,
+    // is shared by every shard, so sharding never changes a score.
+    private InvertedIndex[] shards;
+    private IntBuffer shardStarts;
 
     public TfIdfAnalyzer(ISet<Webpage> webpages) {
-        // Implementation note: We have commented these method calls out so your
-        // search engine doesn't immediately crash when you try running it for the
-        // first time.
-        //
-        // You should uncomment these lines when you're ready to begin working
-        // on this class.
+        this(webpages, new DocumentRegistry(webpages));
+    }
 
-        this.idfScores = this.computeIdfScores(webpages);
-        this.documentTfIdfVectors = this.computeAllDocumentTfIdfVectors(webpages);
-        
+    /**
+     * Constructs an analyzer that identifies each webpage using the id it was given in
+     * the given registry.
+     *
+     * Precondition: every one of the webpages must have been registered.
+     */
+    public TfIdfAnalyzer(ISet<Webpage> webpages, DocumentRegistry registry) {
+        this(webpages, registry, null);
+    }
+
+    /**
+     * Constructs an analyzer that identifies each webpage using the id it was given in
+     * the given registry, splitting the work of building it across the threads of the
+     * given pool. If the pool is null, everything runs on the calling thread instead.
+     *
+     * Precondition: every one of the webpages must have been registered.
+     */
+    public TfIdfAnalyzer(ISet<Webpage> webpages, DocumentRegistry registry, ForkJoinPool pool) {
+        this(registry, countAllTerms(webpages, registry, pool), pool);
+    }
+
+    /**
+     * Constructs an analyzer over documents whose words have already been counted. The
+     * words of the document with id i must be at index i of the array.
+     *
+     * The work of building the analyzer is split across the threads of the given pool.
+     * If the pool is null, everything runs on the calling thread instead.
+     */
+    public TfIdfAnalyzer(DocumentRegistry registry, DocumentTerms[] documents, ForkJoinPool pool) {
+        this(registry, documents, 1, pool);
+    }
+
+    /**
+     * Constructs an analyzer over documents whose words have already been counted, with
+     * the documents split into the given number of shards (or one per document, if there
+     * are fewer documents than that). The words of the document with id i must be at
+     * index i of the array.
+     *
+     * The work of building the analyzer is split across the threads of the given pool.
+     * If the pool is null, everything runs on the calling thread instead.
+     *
+     * @throws IllegalArgumentException if numShards < 1
+     */
+    public TfIdfAnalyzer(DocumentRegistry registry, DocumentTerms[] documents, int numShards, ForkJoinPool pool) {
+        if (numShards < 1) {
+            throw new IllegalArgumentException("Need at least one shard");
+        }
+        this.registry = registry;
+        IDictionary<String, Integer> termIds = this.computeIdfScores(documents, pool);
+        this.computeAllDocumentTfIdfVectors(documents, termIds, numShards, pool);
+    }
+
+    /**
+     * Constructs an analyzer whose fields are filled in by 'readFrom'.
+     */
+    private TfIdfAnalyzer(DocumentRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Reads an analyzer written by 'writeTo', returning a view over the given buffer rather
+     * than a copy, and moves the buffer past it. The registry must be the one the analyzer
+     * was originally built with (or a copy of it read back from disk).
+     *
+     * @throws IOException if the buffer ends early or does not contain a valid analyzer
+     */
+    public static TfIdfAnalyzer readFrom(ByteBuffer in, DocumentRegistry registry) throws IOException {
+        TfIdfAnalyzer analyzer = new TfIdfAnalyzer(registry);
+        analyzer.terms = StringTable.readFrom(in);
+        analyzer.idfScores = BinaryIO.sliceDoubles(in);
+        analyzer.maxNormalizedWeights = BinaryIO.sliceDoubles(in);
+        analyzer.documentLengths = BinaryIO.sliceInts(in);
+        analyzer.documentNorms = BinaryIO.sliceDoubles(in);
+        analyzer.shardStarts = BinaryIO.sliceInts(in);
+        int numShards = analyzer.shardStarts.limit() - 1;
+        if (numShards < 1 || analyzer.shardStarts.get(0) != 0
+                || analyzer.shardStarts.get(numShards) != registry.size()) {
+            throw new IOException("Corrupt analyzer: shards do not cover every document");
+        }
+        analyzer.shards = new InvertedIndex[numShards];
+        for (int shard = 0; shard < numShards; shard++) {
+            if (analyzer.shardStarts.get(shard) > analyzer.shardStarts.get(shard + 1)) {
+                throw new IOException("Corrupt analyzer: shards out of order");
+            }
+            analyzer.shards[shard] = InvertedIndex.readFrom(in);
+        }
+
+        int numTerms = analyzer.terms.size();
+        if (analyzer.idfScores.limit() != numTerms || analyzer.maxNormalizedWeights.limit() != numTerms) {
+            throw new IOException("Corrupt analyzer: term data does not match the term dictionary");
+        }
+        if (analyzer.documentLengths.limit() != registry.size() || analyzer.documentNorms.limit() != registry.size()) {
+            throw new IOException("Corrupt analyzer: document data does not match the registry");
+        }
+        return analyzer;
+    }
+
+    /**
+     * Writes the term dictionary, IDF scores, document lengths and norms, and the inverted
+     * index of every shard to the given output, so 'readFrom' can rebuild this analyzer without
+     * looking at a single webpage.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        this.terms.writeTo(out);
+        BinaryIO.writeDoubles(out, this.idfScores);
+        BinaryIO.writeDoubles(out, this.maxNormalizedWeights);
+        BinaryIO.writeInts(out, this.documentLengths);
+        BinaryIO.writeDoubles(out, this.documentNorms);
+        BinaryIO.writeInts(out, this.shardStarts);
+        for (InvertedIndex shard : this.shards) {
+            shard.writeTo(out);
+        }
     }
 
     // Note: this method, strictly speaking, doesn't need to exist. However,
     // we've included it so we can add some unit tests to help verify that your
     // constructor correctly initializes your fields.
+    //
+    // The vectors are only stored inside the inverted index, so this method rebuilds
+    // them by walking every postings list each time it is called.
     public IDictionary<URI, IDictionary<String, Double>> getDocumentTfIdfVectors() {
-        return this.documentTfIdfVectors;
-    }
-
-    // Note: these private methods are suggestions or hints on how to structure your
-    // code. However, since they're private, you're not obligated to implement exactly
-    // these methods: feel free to change or modify these methods however you want. The
-    // important thing is that your 'computeRelevance' method ultimately returns the
-    // correct answer in an efficient manner.
-
-    /**
-     * Return a dictionary mapping every single unique word found
-     * in every single document to their IDF score.
-     */
-    private IDictionary<String, Double> computeIdfScores(ISet<Webpage> pages) {
-        IDictionary<String, Double> countFrequency = new ChainedHashDictionary<>();
-        IDictionary<String, Double> idfscores = new ChainedHashDictionary<>();
-        
-        for (Webpage page : pages) {
-            ISet<String> wordList = new ChainedHashSet<>();
-            IList<String> words = page.getWords();
-            for (String word : words) {
-                if (!countFrequency.containsKey(word)) {
-                    countFrequency.put(word, 1.0);
-                    wordList.add(word);
-                } else {
-                    if (!wordList.contains(word)) {
-                        wordList.add(word);
-                        double value = countFrequency.get(word);
-                        countFrequency.put(word, value + 1.0);
-                    }    
+        IDictionary<Integer, ObjectDoubleDictionary<String>> vectorsById = DictionaryBackend.selected().newDictionary();
+        for (int docId = 0; docId < this.documentLengths.limit(); docId++) {
+            vectorsById.put(docId, new ObjectDoubleDictionary<>());
+        }
+        for (InvertedIndex shard : this.shards) {
+            for (int termId = 0; termId < this.terms.size(); termId++) {
+                String term = this.terms.get(termId);
+                PostingsCursor cursor = shard.getPostings(termId).cursor();
+                for (int docId = cursor.nextDoc(); docId != PostingsCursor.NO_MORE_DOCS; docId = cursor.nextDoc()) {
+                    vectorsById.get(docId).putDouble(term, this.computeWeight(termId, docId, cursor.count()));
                 }
-                    
             }
-         }
-        for (KVPair<String, Double> pair : countFrequency) {
-            idfscores.put(pair.getKey(), Math.log(pages.size() / pair.getValue()));
         }
-        return idfscores;  
-            
+
+        IDictionary<URI, IDictionary<String, Double>> vectors = DictionaryBackend.selected().newDictionary();
+        for (KVPair<Integer, ObjectDoubleDictionary<String>> pair : vectorsById) {
+            vectors.put(this.registry.getUri(pair.getKey()), pair.getValue());
+        }
+        return vectors;
+    }
+
+    /**
+     * Returns the number of shards the documents are split into.
+     */
+    public int numShards() {
+        return this.shards.length;
     }
 
     /**
-     * Returns a dictionary mapping every unique word found in the given list
-     * to their term frequency (TF) score.
+     * Returns the inverted index of the given shard.
      *
-     * The input list represents the words contained within a single document.
+     * @throws IndexOutOfBoundsException if the shard is not between 0 and numShards() - 1
      */
-    private IDictionary<String, Double> computeTfScores(IList<String> words) {
-        IDictionary<String, Double> wordCount = new ChainedHashDictionary<>();
-        IDictionary<String, Double> tfScores = new ChainedHashDictionary<>();
-        for (String word : words) {
-            if (wordCount.containsKey(word))
-            {
-                double value = wordCount.get(word);
-                wordCount.put(word, value + 1.0);
-            } else {
-                wordCount.put(word, 1.0); 
-            }       
+    public InvertedIndex getShard(int shard) {
+        return this.shards[shard];
+    }
+
+    /**
+     * Counts the words of every one of the given webpages, returning an array with the
+     * counts of the page with id i at index i.
+     */
+    private static DocumentTerms[] countAllTerms(ISet<Webpage> webpages, DocumentRegistry registry,
+                                                 ForkJoinPool pool) {
+        Webpage[] pagesById = new Webpage[registry.size()];
+        for (Webpage page : webpages) {
+            pagesById[registry.getId(page.getUri())] = page;
+        }
+        DocumentTerms[] documents = new DocumentTerms[pagesById.length];
+        ParallelRanges.forEach(pool, 0, documents.length, MIN_DOCUMENTS_PER_TASK, (start, end) -> {
+            for (int docId = start; docId < end; docId++) {
+                if (pagesById[docId] != null) {
+                    documents[docId] = DocumentTerms.count(pagesById[docId].getWords());
+                }
+            }
+        });
+        return documents;
+    }
+
+    /**
+     * Computes the IDF score of every single unique word found in every single
+     * document, assigning each word its term id along the way. Returns a dictionary
+     * mapping every word to its term id.
+     *
+     * Each task counts the document frequencies of its own share of the documents;
+     * the counts are then merged pairwise.
+     */
+    private IDictionary<String, Integer> computeIdfScores(DocumentTerms[] documents, ForkJoinPool pool) {
+        IDictionary<String, Integer> documentFrequency = ParallelRanges.reduce(
+                pool, 0, documents.length, MIN_DOCUMENTS_PER_TASK,
+                (start, end) -> this.countDocumentFrequencies(documents, start, end),
+                this::mergeDocumentFrequencies);
+
+        int numDocuments = 0;
+        for (DocumentTerms document : documents) {
+            if (document != null) {
+                numDocuments++;
+            }
+        }
+
+        IDictionary<String, Integer> termIds = DictionaryBackend.selected().newDictionary();
+        String[] termStrings = new String[documentFrequency.size()];
+        double[] idf = new double[documentFrequency.size()];
+        for (KVPair<String, Integer> pair : documentFrequency) {
+            int termId = termIds.size();
+            termIds.put(pair.getKey(), termId);
+            termStrings[termId] = pair.getKey();
+            idf[termId] = Math.log(numDocuments / (double) pair.getValue());
+        }
+        this.terms = StringTable.of(termStrings, true);
+        this.idfScores = DoubleBuffer.wrap(idf);
+        return termIds;
+    }
+
+    /**
+     * Returns a dictionary mapping every word found in the documents with ids in
+     * [start, end) to the number of those documents containing it.
+     */
+    private IDictionary<String, Integer> countDocumentFrequencies(DocumentTerms[] documents, int start, int end) {
+        IDictionary<String, Integer> documentFrequency = DictionaryBackend.selected().newDictionary();
+        for (int docId = start; docId < end; docId++) {
+            DocumentTerms document = documents[docId];
+            for (int i = 0; document != null && i < document.numDistinct(); i++) {
+                String word = document.getWord(i);
+                documentFrequency.put(word, documentFrequency.getOrDefault(word, 0) + 1);
+            }
+        }
+        return documentFrequency;
+    }
+
+    /**
+     * Adds the document frequencies in the smaller of the two dictionaries into the
+     * larger one, and returns the larger one.
+     */
+    private IDictionary<String, Integer> mergeDocumentFrequencies(IDictionary<String, Integer> first,
+                                                                  IDictionary<String, Integer> second) {
+        IDictionary<String, Integer> larger = first.size() >= second.size() ? first : second;
+        IDictionary<String, Integer> smaller = larger == first ? second : first;
+        for (KVPair<String, Integer> pair : smaller) {
+            larger.put(pair.getKey(), larger.getOrDefault(pair.getKey(), 0) + pair.getValue());
+        }
+        return larger;
+    }
+
+    /**
+     * Computes the TF-IDF vector norm of every webpage, and fills in the inverted index.
+     *
+     * The vectors and norms of different documents are independent of each other, so we
+     * compute them in parallel. Afterwards we add every document's postings to the index,
+     * in order of document id, so each postings list ends up sorted.
+     */
+    private void computeAllDocumentTfIdfVectors(DocumentTerms[] documents, IDictionary<String, Integer> termIds,
+                                                int numShards, ForkJoinPool pool) {
+        int[][] vectorTerms = new int[documents.length][];
+        int[][] vectorCounts = new int[documents.length][];
+        this.documentLengths = IntBuffer.wrap(new int[documents.length]);
+        this.documentNorms = DoubleBuffer.wrap(new double[documents.length]);
+        ParallelRanges.forEach(pool, 0, documents.length, MIN_DOCUMENTS_PER_TASK, (start, end) -> {
+            for (int docId = start; docId < end; docId++) {
+                if (documents[docId] != null) {
+                    this.computeDocumentTfIdfVector(docId, documents[docId], termIds, vectorTerms, vectorCounts);
+                }
+            }
+        });
+
+        // Give each shard an equal share of the documents.
+        int usedShards = Math.max(1, Math.min(numShards, documents.length));
+        int[] starts = new int[usedShards + 1];
+        for (int shard = 0; shard <= usedShards; shard++) {
+            starts[shard] = (int) ((long) shard * documents.length / usedShards);
+        }
+        this.shardStarts = IntBuffer.wrap(starts);
+        this.shards = new InvertedIndex[usedShards];
+
+        double[] maxWeights = new double[this.terms.size()];
+        for (int shard = 0; shard < usedShards; shard++) {
+            this.shards[shard] = new InvertedIndex();
+            for (int docId = starts[shard]; docId < starts[shard + 1]; docId++) {
+                double norm = this.documentNorms.get(docId);
+                for (int i = 0; vectorTerms[docId] != null && i < vectorTerms[docId].length; i++) {
+                    int termId = vectorTerms[docId][i];
+                    int count = vectorCounts[docId][i];
+                    this.shards[shard].addPosting(termId, docId, count);
+                    if (norm != 0) {
+                        double normalizedWeight = this.computeWeight(termId, docId, count) / norm;
+                        maxWeights[termId] = Math.max(maxWeights[termId], normalizedWeight);
+                    }
+                }
+            }
+            this.shards[shard].finish();
         }
-        for (KVPair<String, Double> pair : wordCount) {
-            tfScores.put(pair.getKey(), pair.getValue() / words.size());
+        this.maxNormalizedWeights = DoubleBuffer.wrap(maxWeights);
+    }
+
+    /**
+     * Computes the length and TF-IDF vector norm of a single webpage, and stores the ids
+     * and counts of the words it contains, sorted by term id, in the given arrays.
+     */
+    private void computeDocumentTfIdfVector(int docId, DocumentTerms document, IDictionary<String, Integer> termIds,
+                                            int[][] vectorTerms, int[][] vectorCounts) {
+        // Pack each term id together with its count so sorting by term id keeps
+        // the two together.
+        long[] packed = new long[document.numDistinct()];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = ((long) termIds.get(document.getWord(i)) << 32) | document.getCount(i);
+        }
+        Arrays.sort(packed);
+
+        this.documentLengths.put(docId, document.getLength());
+        int[] termIdsInDocument = new int[packed.length];
+        int[] counts = new int[packed.length];
+        double norm = 0.0;
+        for (int i = 0; i < packed.length; i++) {
+            termIdsInDocument[i] = (int) (packed[i] >>> 32);
+            counts[i] = (int) packed[i];
+            double weight = this.computeWeight(termIdsInDocument[i], docId, counts[i]);
+            norm += weight * weight;
         }
-        return tfScores;    
+        this.documentNorms.put(docId, Math.sqrt(norm));
+        vectorTerms[docId] = termIdsInDocument;
+        vectorCounts[docId] = counts;
     }
 
     /**
-     * See spec for more details on what this method should do.
+     * Returns the TF-IDF weight of the given word in the given document, given the
+     * number of times the word appears in it.
      */
-    private IDictionary<URI, IDictionary<String, Double>> computeAllDocumentTfIdfVectors(ISet<Webpage> pages) {
-        IDictionary<URI, IDictionary<String, Double>> allVectors = new ChainedHashDictionary<>();
-        IDictionary<URI, Double> pageNorm = new ChainedHashDictionary<>();
-        for (Webpage page : pages) {
-            double norm = 0;
-            URI url = page.getUri();
-            IDictionary<String, Double> vectors = new ChainedHashDictionary<>();
-            IList<String> words = page.getWords();
-            for (KVPair<String, Double> pair : this.computeTfScores(words)) {
-                String word = pair.getKey();
-                vectors.put(word, pair.getValue() * this.idfScores.get(word));
-                norm += vectors.get(word) * vectors.get(word);
+    private double computeWeight(int termId, int docId, int count) {
+        return count / (double) this.documentLengths.get(docId) * this.idfScores.get(termId);
+    }
+
+    /**
+     * Returns the term id of the given word, or -1 if it does not appear in any document.
+     */
+    private int getTermId(String word) {
+        return this.terms.indexOf(word);
+    }
+
+    /**
+     * Computes the TF-IDF vector and norm of the given query, so it can be scored against
+     * many documents without recomputing them each time.
+     */
+    public PreparedQuery prepare(IList<String> query) {
+        // Count each query term once, remembering how often it appears, so scoring only
+        // looks at each term a single time. Words that appear in no document have a
+        // weight of zero in both vectors, so we can skip them.
+        IntDoubleDictionary queryCounts = new IntDoubleDictionary();
+        for (String word : query) {
+            int termId = this.getTermId(word);
+            if (termId != -1) {
+                queryCounts.addTo(termId, 1.0);
             }
-            pageNorm.put(url, Math.sqrt(norm));
-            allVectors.put(url, vectors);       
         }
-        this.documentNorm = pageNorm;
-        return allVectors;
+        IntDoubleDictionary queryVector = this.computeQueryVector(queryCounts, query.size());
+
+        int[] termIds = new int[queryCounts.size()];
+        double[] wordScores = new double[termIds.length];
+        int index = 0;
+        for (IntDoubleDictionary.Cursor term = queryCounts.cursor(); term.next();) {
+            termIds[index] = term.key();
+            wordScores[index] = term.value() * queryVector.getDouble(term.key());
+            index++;
+        }
+        return new PreparedQuery(this, termIds, wordScores, this.computeNorm(queryVector));
     }
 
     /**
@@ -143,44 +462,236 @@ public class TfIdfAnalyzer {
      *               webpages given to the constructor.
      */
     public Double computeRelevance(IList<String> query, URI pageUri) {
-        // Note: The pseudocode we gave you is not very efficient. When implementing,
-        // this method, you should:
-        //
-        // 1. Figure out what information can be precomputed in your constructor.
-        //    Add a third field containing that information.
-        //
-        // 2. See if you can combine or merge one or more loops.
-        IDictionary<String, Double> documentVector = this.documentTfIdfVectors.get(pageUri);
-        double dNorm = this.documentNorm.get(pageUri);
-        
-
-        IDictionary<String, Double> queryVector = new ChainedHashDictionary<>();
-        IDictionary<String, Double> queryTFScores = this.computeTfScores(query);
-        double queryNorm = 0.0;
-        for (KVPair<String, Double> pair : queryTFScores) {
-            String word = pair.getKey();
-            if (this.idfScores.containsKey(word)) {
-                queryVector.put(word, pair.getValue() * this.idfScores.get(word));
+        return this.computeRelevance(this.prepare(query), this.registry.getId(pageUri));
+    }
+
+    /**
+     * Returns the cosine similarity between the TF-IDF vector for the given prepared query
+     * and the URI's document.
+     *
+     * Precondition: the given uri must have been one of the uris within the list of
+     *               webpages given to the constructor.
+     *
+     * @throws IllegalArgumentException  if the query was prepared by a different analyzer
+     */
+    public double computeRelevance(PreparedQuery query, URI pageUri) {
+        return this.computeRelevance(query, this.registry.getId(pageUri));
+    }
+
+    /**
+     * Returns the cosine similarity between the TF-IDF vector for the given prepared query
+     * and the document with the given id.
+     *
+     * @throws IllegalArgumentException   if the query was prepared by a different analyzer
+     * @throws IndexOutOfBoundsException  if there is no document with the given id
+     */
+    public double computeRelevance(PreparedQuery query, int docId) {
+        this.checkPrepared(query);
+        InvertedIndex shard = this.shards[this.findShard(docId)];
+        int[] termIds = query.termIds();
+        double[] wordScores = query.wordScores();
+        double numerator = 0.0;
+        for (int i = 0; i < termIds.length; i++) {
+            PostingsCursor cursor = shard.getPostings(termIds[i]).cursor();
+            if (cursor.advance(docId) == docId) {
+                numerator += this.computeWeight(termIds[i], docId, cursor.count()) * wordScores[i];
+            }
+        }
+        return this.cosine(numerator, this.documentNorms.get(docId), query.norm());
+    }
+
+    /**
+     * Finds the k documents whose cosine similarity to the given query, multiplied by the
+     * document's boost, is highest, and passes each of them along with that score to the
+     * given consumer in decreasing order of score.
+     *
+     * Only documents that contain at least one of the query's words are considered. The
+     * relevance used for each document is the same one 'computeRelevance' would return
+     * for it, but most documents that cannot make it into the top k are never scored.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public void computeTopScores(IList<String> query, int k, DocumentBoosts boosts, ScoreConsumer consumer) {
+        this.computeTopScores(query, k, boosts, null, consumer);
+    }
+
+    /**
+     * Does the same as 'computeTopScores' above, but searches the shards in parallel on
+     * the threads of the given pool. If the pool is null, every shard is searched on the
+     * calling thread instead.
+     *
+     * Each task keeps its own top k while it searches its share of the shards, and the
+     * tasks' top k are then merged. Once any task has found k documents, the lowest score
+     * among them is shared with the others, so no task scores a document that could not
+     * beat it.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public void computeTopScores(IList<String> query, int k, DocumentBoosts boosts, ForkJoinPool pool,
+                                 ScoreConsumer consumer) {
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.computeTopScores(this.prepare(query), k, boosts, pool, consumer);
+    }
+
+    /**
+     * Does the same as 'computeTopScores' above, for a query this analyzer has already
+     * prepared.
+     *
+     * @throws IllegalArgumentException  if k < 0, or if the query was prepared by a
+     *                                   different analyzer
+     */
+    public void computeTopScores(PreparedQuery query, int k, DocumentBoosts boosts, ForkJoinPool pool,
+                                 ScoreConsumer consumer) {
+        this.computeTopScores(query, k, boosts, pool, Deadline.NONE, null, consumer);
+    }
+
+    /**
+     * Does the same as 'computeTopScores' above, but gives up once the given deadline
+     * passes, without passing anything to the consumer.
+     *
+     * If the given stats are not null, records how long finding the top k took, how long
+     * passing them to the consumer took, and how many documents were scored.
+     *
+     * @throws IllegalArgumentException                     if k < 0, or if the query was
+     *                                                      prepared by a different analyzer
+     * @throws search.misc.exceptions.QueryTimeoutException if the deadline passes
+     */
+    public void computeTopScores(PreparedQuery query, int k, DocumentBoosts boosts, ForkJoinPool pool,
+                                 Deadline deadline, QueryStats stats, ScoreConsumer consumer) {
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.checkPrepared(query);
+        int[] queryTerms = query.termIds();
+        double[] queryWordScores = query.wordScores();
+        double queryNorm = query.norm();
+        double[] upperBounds = new double[queryTerms.length];
+        for (int i = 0; queryNorm != 0 && i < queryTerms.length; i++) {
+            upperBounds[i] = queryWordScores[i] / queryNorm
+                    * this.maxNormalizedWeights.get(queryTerms[i]) * boosts.max();
+        }
+
+        long startedAt = System.nanoTime();
+        SharedThreshold shared = new SharedThreshold(k);
+        TopKDoubleHeap best = ParallelRanges.reduce(pool, 0, this.shards.length, 1, (start, end) -> {
+            // These shards can never offer more documents than they hold, however large k is.
+            int numDocuments = this.shardStarts.get(end) - this.shardStarts.get(start);
+            TopKDoubleHeap heap = new TopKDoubleHeap(Math.min(k, numDocuments));
+            int scored = 0;
+            for (int shard = start; shard < end; shard++) {
+                deadline.check();
+                scored += this.searchShard(shard, queryTerms, queryWordScores, upperBounds, queryNorm, boosts,
+                        deadline, heap, shared);
+            }
+            if (stats != null) {
+                stats.addDocumentsScored(scored);
+            }
+            return heap;
+        }, (first, second) -> {
+            // Each heap only has room for its own shards' documents, so the merged top k
+            // may need a bigger one.
+            TopKDoubleHeap merged = new TopKDoubleHeap(Math.min(k, first.size() + second.size()));
+            merged.addAll(first);
+            merged.addAll(second);
+            return merged;
+        });
+        long scoredAt = System.nanoTime();
+        best.drainDescending(consumer);
+        if (stats != null) {
+            stats.addScoreNanos(scoredAt - startedAt);
+            stats.addTopKNanos(System.nanoTime() - scoredAt);
+        }
+    }
+
+    /**
+     * Adds the documents of the given shard that score high enough to the given heap.
+     * The i-th query term appears in the query enough times to contribute the i-th query
+     * word score, and can add at most the i-th upper bound to any document's score.
+     * Documents that cannot beat the shared threshold are skipped.
+     *
+     * Gives up with a QueryTimeoutException once the given deadline passes. Returns the
+     * number of documents scored.
+     */
+    private int searchShard(int shard, int[] queryTerms, double[] queryWordScores, double[] upperBounds,
+                            double queryNorm, DocumentBoosts boosts, Deadline deadline, TopKDoubleHeap heap,
+                            SharedThreshold shared) {
+        PostingsCursor[] cursors = new PostingsCursor[queryTerms.length];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = this.shards[shard].getPostings(queryTerms[i]).cursor();
+        }
+
+        WandEvaluator evaluator = new WandEvaluator(cursors, upperBounds, cursors.length, (docId) -> {
+            double numerator = 0.0;
+            for (int i = 0; i < cursors.length; i++) {
+                if (cursors[i].docId() == docId) {
+                    numerator += this.computeWeight(queryTerms[i], docId, cursors[i].count()) * queryWordScores[i];
+                }
+            }
+            return this.cosine(numerator, this.documentNorms.get(docId), queryNorm) * boosts.get(docId);
+        });
+        return evaluator.evaluate(heap, shared, deadline);
+    }
+
+    private void checkPrepared(PreparedQuery query) {
+        if (query.analyzer() != this) {
+            throw new IllegalArgumentException("Query was prepared by a different analyzer");
+        }
+    }
+
+    /**
+     * Returns the shard holding the document with the given id.
+     */
+    private int findShard(int docId) {
+        int low = 0;
+        int high = this.shards.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (this.shardStarts.get(middle) <= docId) {
+                low = middle;
             } else {
-                queryVector.put(word, 0.0);
+                high = middle - 1;
             }
-            queryNorm += queryVector.get(word) * queryVector.get(word);
         }
-        
-        double numerator = 0.0;
-        for (String word : query) {
-            double docWordScore = 0.0; 
-            double queryWordScore = queryVector.get(word);
-            if (documentVector.containsKey(word)) {
-                docWordScore = documentVector.get(word);
-            } 
-            numerator += docWordScore * queryWordScore;
-        }
-       double denominator = dNorm * Math.sqrt(queryNorm);
-       if (denominator != 0) {
-           return numerator / denominator;
-       } else {
-           return 0.0;
-       }
+        return low;
+    }
+
+    /**
+     * Divides the dot product of two vectors by the product of their norms, treating
+     * a zero-length vector as having no similarity to anything.
+     */
+    private double cosine(double numerator, double documentNorm, double queryNorm) {
+        double denominator = documentNorm * queryNorm;
+        if (denominator != 0) {
+            return numerator / denominator;
+        } else {
+            return 0.0;
+        }
+    }
+
+    /**
+     * Returns the TF-IDF vector for a query with the given number of words, given how many
+     * times each term appears in it. The vector maps the term id of every query word that
+     * appears in some document to its weight.
+     */
+    private IntDoubleDictionary computeQueryVector(IntDoubleDictionary termCounts, int queryLength) {
+        IntDoubleDictionary queryVector = new IntDoubleDictionary();
+        for (IntDoubleDictionary.Cursor term = termCounts.cursor(); term.next();) {
+            double tf = term.value() / queryLength;
+            queryVector.putDouble(term.key(), tf * this.idfScores.get(term.key()));
+        }
+        return queryVector;
+    }
+
+    /**
+     * Returns the euclidean norm of the given vector.
+     */
+    private double computeNorm(IntDoubleDictionary vector) {
+        double norm = 0.0;
+        for (IntDoubleDictionary.Cursor entry = vector.cursor(); entry.next();) {
+            norm += entry.value() * entry.value();
+        }
+        return Math.sqrt(norm);
     }
 }
@@ -0,0 +1,121 @@
+package search.index;
+
+/**
+ * An unweighted, directed graph over the vertices 0 to n - 1, stored in compressed
+ * sparse row (CSR) form.
+ *
+ * The out-neighbours of every vertex are stored back to back in one 'targets' array;
+ * the neighbours of vertex v occupy the indices offsets[v] up to (but not including)
+ * offsets[v + 1]. Compared to a dictionary of sets, this uses two ints per edge and
+ * one per vertex, and walking a vertex's neighbours reads consecutive memory.
+ */
+public class CsrGraph {
+    private int[] offsets;
+    private int[] targets;
+
+    /**
+     * Constructs a new graph from the given arrays, which are used directly, not copied.
+     *
+     * @throws IllegalArgumentException if the offsets are empty, do not start at 0, are
+     *                                  not sorted, or do not end at targets.length
+     */
+    public CsrGraph(int[] offsets, int[] targets) {
+        if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != targets.length) {
+            throw new IllegalArgumentException("Offsets do not match the targets");
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) {
+                throw new IllegalArgumentException("Offsets must be sorted");
+            }
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Constructs a graph where the out-neighbours of vertex v are the entries of
+     * adjacency[v] (a null entry means the vertex has none).
+     */
+    public static CsrGraph fromAdjacencyLists(int[][] adjacency) {
+        int[] offsets = new int[adjacency.length + 1];
+        for (int v = 0; v < adjacency.length; v++) {
+            offsets[v + 1] = offsets[v] + (adjacency[v] == null ? 0 : adjacency[v].length);
+        }
+        int[] targets = new int[offsets[adjacency.length]];
+        for (int v = 0; v < adjacency.length; v++) {
+            if (adjacency[v] != null) {
+                System.arraycopy(adjacency[v], 0, targets, offsets[v], adjacency[v].length);
+            }
+        }
+        return new CsrGraph(offsets, targets);
+    }
+
+    /**
+     * Returns a new graph with every edge reversed, so the out-neighbours of each vertex
+     * in the new graph are its in-neighbours in this one.
+     */
+    public CsrGraph transpose() {
+        int numVertices = this.numVertices();
+        int[] newOffsets = new int[numVertices + 1];
+        for (int target : this.targets) {
+            newOffsets[target + 1]++;
+        }
+        for (int v = 0; v < numVertices; v++) {
+            newOffsets[v + 1] += newOffsets[v];
+        }
+
+        int[] next = new int[numVertices];
+        System.arraycopy(newOffsets, 0, next, 0, numVertices);
+        int[] newTargets = new int[this.targets.length];
+        for (int v = 0; v < numVertices; v++) {
+            for (int i = this.offsets[v]; i < this.offsets[v + 1]; i++) {
+                int target = this.targets[i];
+                newTargets[next[target]] = v;
+                next[target]++;
+            }
+        }
+        return new CsrGraph(newOffsets, newTargets);
+    }
+
+    /**
+     * Returns the number of vertices in this graph.
+     */
+    public int numVertices() {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     */
+    public int numEdges() {
+        return this.targets.length;
+    }
+
+    /**
+     * Returns the number of out-neighbours of the given vertex.
+     */
+    public int degree(int vertex) {
+        return this.offsets[vertex + 1] - this.offsets[vertex];
+    }
+
+    /**
+     * Returns the index in 'getTarget' of the given vertex's first out-neighbour.
+     */
+    public int firstEdge(int vertex) {
+        return this.offsets[vertex];
+    }
+
+    /**
+     * Returns the index just past the given vertex's last out-neighbour.
+     */
+    public int endEdge(int vertex) {
+        return this.offsets[vertex + 1];
+    }
+
+    /**
+     * Returns the vertex the edge at the given index points to.
+     */
+    public int getTarget(int edge) {
+        return this.targets[edge];
+    }
+}
@@ -0,0 +1,55 @@
+package search.index;
+
+/**
+ * A fixed, query-independent multiplier for every document's relevance score, indexed
+ * by document id.
+ *
+ * Knowing the largest boost up front lets the WandEvaluator bound how much any single
+ * term could contribute to a document's final score.
+ */
+public class DocumentBoosts {
+    private double[] boosts;
+    private double max;
+
+    /**
+     * Constructs a new instance of this class. The array is used directly, not copied,
+     * and must not be modified afterwards.
+     *
+     * @throws IllegalArgumentException if any boost is negative
+     */
+    public DocumentBoosts(double[] boosts) {
+        this.boosts = boosts;
+        this.max = 0.0;
+        for (double boost : boosts) {
+            if (boost < 0.0) {
+                throw new IllegalArgumentException("Boosts must not be negative");
+            }
+            this.max = Math.max(this.max, boost);
+        }
+    }
+
+    /**
+     * Returns a boost of 1 for each of the given number of documents.
+     */
+    public static DocumentBoosts uniform(int numDocuments) {
+        double[] boosts = new double[numDocuments];
+        for (int i = 0; i < numDocuments; i++) {
+            boosts[i] = 1.0;
+        }
+        return new DocumentBoosts(boosts);
+    }
+
+    /**
+     * Returns the boost of the document with the given id.
+     */
+    public double get(int docId) {
+        return this.boosts[docId];
+    }
+
+    /**
+     * Returns the largest boost of any document.
+     */
+    public double max() {
+        return this.max;
+    }
+}
@@ -0,0 +1,176 @@
+package search.index;
+
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.ISet;
+import misc.exceptions.NoSuchKeyException;
+import search.misc.DictionaryBackend;
+import search.models.Webpage;
+import search.models.WebpageSummary;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+
+/**
+ * Assigns every webpage a dense integer id, starting at 0.
+ *
+ * The analyzers and the index use these ids to store per-document data in plain arrays
+ * instead of dictionaries keyed by URI, so looking up a document's data on the query
+ * path is a single array access.
+ */
+public class DocumentRegistry {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // The id and summary of every page registered so far. Both are null if the registry
+    // was read from a file, in which case 'uris' and 'text' are used instead.
+    private IDictionary<URI, Integer> ids;
+    private WebpageSummary[] summaries;
+    private int size;
+
+    // The URI of every page (searchable), and the title and blurb of every page (the
+    // page with id i has its title at index 2i and its blurb at index 2i + 1).
+    private StringTable uris;
+    private StringTable text;
+
+    /**
+     * Constructs a new, empty registry.
+     */
+    public DocumentRegistry() {
+        this.ids = DictionaryBackend.selected().newDictionary();
+        this.summaries = new WebpageSummary[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Constructs a registry containing every one of the given webpages.
+     */
+    public DocumentRegistry(ISet<Webpage> webpages) {
+        this();
+        for (Webpage page : webpages) {
+            this.register(page.getSummary());
+        }
+    }
+
+    /**
+     * Reads a registry written by 'writeTo', returning a view over the given buffer rather
+     * than a copy, and moves the buffer past it. Every page has the same id it had before.
+     *
+     * The returned registry cannot register any more pages. Summaries are decoded from the
+     * buffer each time they are asked for, and URIs are looked up with a binary search.
+     *
+     * @throws IOException if the buffer ends early or does not contain a valid registry
+     */
+    public static DocumentRegistry readFrom(ByteBuffer in) throws IOException {
+        StringTable uris = StringTable.readFrom(in);
+        StringTable text = StringTable.readFrom(in);
+        if (text.size() != 2 * uris.size()) {
+            throw new IOException("Corrupt registry: titles and blurbs do not match the URIs");
+        }
+        DocumentRegistry registry = new DocumentRegistry();
+        registry.ids = null;
+        registry.summaries = null;
+        registry.uris = uris;
+        registry.text = text;
+        registry.size = uris.size();
+        return registry;
+    }
+
+    /**
+     * Writes the summary of every registered page, in order of id, to the given output.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        String[] uriStrings = new String[this.size];
+        String[] textStrings = new String[2 * this.size];
+        for (int id = 0; id < this.size; id++) {
+            WebpageSummary summary = this.getSummary(id);
+            uriStrings[id] = summary.getUri().toString();
+            textStrings[2 * id] = summary.getTitle();
+            textStrings[2 * id + 1] = summary.getBlurb();
+        }
+        StringTable.of(uriStrings, true).writeTo(out);
+        StringTable.of(textStrings, false).writeTo(out);
+    }
+
+    /**
+     * Assigns the next available id to the page with the given summary and returns it.
+     * If the page was already registered, returns its existing id instead.
+     */
+    public int register(WebpageSummary summary) {
+        if (this.ids == null) {
+            throw new UnsupportedOperationException("Cannot register pages in a registry read from a file");
+        }
+        Integer existing = this.ids.getOrDefault(summary.getUri(), null);
+        if (existing != null) {
+            return existing;
+        }
+        if (this.size == this.summaries.length) {
+            WebpageSummary[] newSummaries = new WebpageSummary[2 * this.summaries.length];
+            System.arraycopy(this.summaries, 0, newSummaries, 0, this.size);
+            this.summaries = newSummaries;
+        }
+        int id = this.size;
+        this.summaries[id] = summary;
+        this.ids.put(summary.getUri(), id);
+        this.size++;
+        return id;
+    }
+
+    /**
+     * Returns the id of the page with the given URI.
+     *
+     * @throws NoSuchKeyException if no page with that URI was registered.
+     */
+    public int getId(URI uri) {
+        if (this.ids == null) {
+            int id = this.uris.indexOf(uri.toString());
+            if (id == -1) {
+                throw new NoSuchKeyException();
+            }
+            return id;
+        }
+        return this.ids.get(uri);
+    }
+
+    /**
+     * Returns 'true' if a page with the given URI was registered and 'false' otherwise.
+     */
+    public boolean contains(URI uri) {
+        if (this.ids == null) {
+            return this.uris.indexOf(uri.toString()) != -1;
+        }
+        return this.ids.containsKey(uri);
+    }
+
+    /**
+     * Returns the URI of the page with the given id.
+     *
+     * @throws IndexOutOfBoundsException if the id was never assigned.
+     */
+    public URI getUri(int id) {
+        return this.getSummary(id).getUri();
+    }
+
+    /**
+     * Returns the summary of the page with the given id.
+     *
+     * @throws IndexOutOfBoundsException if the id was never assigned.
+     */
+    public WebpageSummary getSummary(int id) {
+        if (id < 0 || id >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (this.summaries == null) {
+            return new WebpageSummary(URI.create(this.uris.get(id)), this.text.get(2 * id), this.text.get(2 * id + 1));
+        }
+        return this.summaries[id];
+    }
+
+    /**
+     * Returns the number of registered pages. Ids run from 0 up to, but not including,
+     * this number.
+     */
+    public int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,12 @@
+package search.index;
+
+/**
+ * Computes the exact score of a single document.
+ *
+ * The WandEvaluator calls this once every cursor that contains the document has been
+ * moved onto it, so the scorer can read each matching cursor's current posting.
+ */
+@FunctionalInterface
+public interface DocumentScorer {
+    double score(int docId);
+}
@@ -0,0 +1,76 @@
+package search.index;
+
+import datastructures.concrete.KVPair;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import search.misc.DictionaryBackend;
+
+/**
+ * The distinct words found in a single document, and how many times each one appears.
+ *
+ * This is all the TfIdfAnalyzer needs to know about a document, and is usually much
+ * smaller than the document's full list of words.
+ */
+public class DocumentTerms {
+    private String[] words;
+    private int[] counts;
+    private int length;
+
+    /**
+     * Constructs a new instance of this class. The i-th count belongs to the i-th word.
+     * The arrays are used directly, not copied.
+     */
+    public DocumentTerms(String[] words, int[] counts, int length) {
+        this.words = words;
+        this.counts = counts;
+        this.length = length;
+    }
+
+    /**
+     * Counts the distinct words in the given list.
+     */
+    public static DocumentTerms count(IList<String> words) {
+        IDictionary<String, Integer> wordCounts = DictionaryBackend.selected().newDictionary();
+        for (String word : words) {
+            wordCounts.put(word, wordCounts.getOrDefault(word, 0) + 1);
+        }
+
+        String[] distinct = new String[wordCounts.size()];
+        int[] counts = new int[distinct.length];
+        int index = 0;
+        for (KVPair<String, Integer> pair : wordCounts) {
+            distinct[index] = pair.getKey();
+            counts[index] = pair.getValue();
+            index++;
+        }
+        return new DocumentTerms(distinct, counts, words.size());
+    }
+
+    /**
+     * Returns the number of distinct words in the document.
+     */
+    public int numDistinct() {
+        return this.words.length;
+    }
+
+    /**
+     * Returns the i-th distinct word.
+     */
+    public String getWord(int index) {
+        return this.words[index];
+    }
+
+    /**
+     * Returns the number of times the i-th distinct word appears.
+     */
+    public int getCount(int index) {
+        return this.counts[index];
+    }
+
+    /**
+     * Returns the total number of words in the document, counting repeats.
+     */
+    public int getLength() {
+        return this.length;
+    }
+}
@@ -0,0 +1,61 @@
+package search.index;
+
+import search.models.Webpage;
+import search.models.WebpageSummary;
+
+import java.net.URI;
+
+/**
+ * A webpage reduced to what the index needs: its summary, the distinct words it contains
+ * and how often, and the links found on it.
+ *
+ * This is usually much smaller than the webpage itself, which keeps every single word,
+ * so an indexer can hold on to one of these per page while the rest are still loading.
+ */
+public class IndexablePage {
+    private WebpageSummary summary;
+    private DocumentTerms terms;
+    private URI[] links;
+
+    /**
+     * Constructs a new instance of this class. The array is used directly, not copied.
+     */
+    public IndexablePage(WebpageSummary summary, DocumentTerms terms, URI[] links) {
+        this.summary = summary;
+        this.terms = terms;
+        this.links = links;
+    }
+
+    /**
+     * Returns the parts of the given webpage the index needs.
+     */
+    public static IndexablePage of(Webpage page) {
+        URI[] links = new URI[page.getLinks().size()];
+        int i = 0;
+        for (URI link : page.getLinks()) {
+            links[i] = link;
+            i++;
+        }
+        return new IndexablePage(page.getSummary(), DocumentTerms.count(page.getWords()), links);
+    }
+
+    public URI getUri() {
+        return this.summary.getUri();
+    }
+
+    public WebpageSummary getSummary() {
+        return this.summary;
+    }
+
+    public DocumentTerms getTerms() {
+        return this.terms;
+    }
+
+    /**
+     * Returns every link found on this page, in the order they appear. The array must
+     * not be modified.
+     */
+    public URI[] getLinks() {
+        return this.links;
+    }
+}
@@ -0,0 +1,212 @@
+package search.index;
+
+import search.misc.BinaryIO;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Maps every term to the list of documents that contain it.
+ *
+ * This lets us answer a query by looking only at the documents that contain at
+ * least one of the query terms instead of scoring every document we know about.
+ * Terms and documents are both identified by dense integer ids.
+ *
+ * Postings are first added using 'addPosting', then 'finish' must be called once
+ * before any of them can be read. Finishing packs every postings list into a few
+ * large buffers, laid out exactly as 'writeTo' writes them; an index read back
+ * with 'readFrom' is simply a view over the same layout in a (usually
+ * memory-mapped) file.
+ */
+public class InvertedIndex {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final PostingsList NO_POSTINGS = new PostingsList();
+
+    static {
+        NO_POSTINGS.finish();
+    }
+
+    // The lists postings are added to. Null once the index is finished.
+    private PostingsList[] postings;
+
+    // The number of postings of every term, and the index of its first block in the
+    // two block buffers. Null until the index is finished.
+    private IntBuffer termSizes;
+    private IntBuffer termFirstBlocks;
+
+    // The last document id and offset (within 'data') of every block of every term,
+    // and the encoded postings themselves.
+    private IntBuffer blockLastDocIds;
+    private IntBuffer blockOffsets;
+    private ByteBuffer data;
+
+    /**
+     * Constructs a new, empty index.
+     */
+    public InvertedIndex() {
+        this.postings = new PostingsList[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Constructs a finished index over the given buffers.
+     */
+    private InvertedIndex(IntBuffer termSizes, IntBuffer termFirstBlocks,
+                          IntBuffer blockLastDocIds, IntBuffer blockOffsets, ByteBuffer data) {
+        this.postings = null;
+        this.termSizes = termSizes;
+        this.termFirstBlocks = termFirstBlocks;
+        this.blockLastDocIds = blockLastDocIds;
+        this.blockOffsets = blockOffsets;
+        this.data = data;
+    }
+
+    /**
+     * Reads an index written by 'writeTo', returning a view over the given buffer rather
+     * than a copy, and moves the buffer past it.
+     *
+     * @throws IOException if the buffer ends early or does not contain a valid index
+     */
+    public static InvertedIndex readFrom(ByteBuffer in) throws IOException {
+        IntBuffer termSizes = BinaryIO.sliceInts(in);
+        IntBuffer termFirstBlocks = BinaryIO.sliceInts(in);
+        IntBuffer blockLastDocIds = BinaryIO.sliceInts(in);
+        IntBuffer blockOffsets = BinaryIO.sliceInts(in);
+        ByteBuffer data = BinaryIO.sliceBytes(in);
+        if (termSizes.limit() != termFirstBlocks.limit() || blockLastDocIds.limit() != blockOffsets.limit()) {
+            throw new IOException("Corrupt index: table sizes do not match");
+        }
+        return new InvertedIndex(termSizes, termFirstBlocks, blockLastDocIds, blockOffsets, data);
+    }
+
+    /**
+     * Writes every postings list, still compressed, to the given output.
+     *
+     * @throws IllegalStateException if the index has not been finished
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        this.checkFinished();
+        BinaryIO.writeInts(out, this.termSizes);
+        BinaryIO.writeInts(out, this.termFirstBlocks);
+        BinaryIO.writeInts(out, this.blockLastDocIds);
+        BinaryIO.writeInts(out, this.blockOffsets);
+        BinaryIO.writeBytes(out, this.data);
+    }
+
+    /**
+     * Records that the given document contains the given term the given number of times.
+     *
+     * Postings for a single term must be added in increasing document order.
+     *
+     * @throws IllegalStateException if the index has already been finished
+     */
+    public void addPosting(int termId, int docId, int count) {
+        if (this.postings == null) {
+            throw new IllegalStateException("Cannot add postings to a finished index");
+        }
+        if (termId >= this.postings.length) {
+            PostingsList[] newPostings = new PostingsList[Math.max(2 * this.postings.length, termId + 1)];
+            System.arraycopy(this.postings, 0, newPostings, 0, this.postings.length);
+            this.postings = newPostings;
+        }
+        if (this.postings[termId] == null) {
+            this.postings[termId] = new PostingsList();
+        }
+        this.postings[termId].add(docId, count);
+    }
+
+    /**
+     * Finishes every postings list and packs them all into shared buffers. No more
+     * postings may be added afterwards.
+     *
+     * @throws IllegalStateException if the index has already been finished, or the
+     *                               postings take up more than 2GB
+     */
+    public void finish() {
+        if (this.postings == null) {
+            throw new IllegalStateException("Index has already been finished");
+        }
+        int numTerms = 0;
+        int totalBlocks = 0;
+        long totalBytes = 0;
+        for (int termId = 0; termId < this.postings.length; termId++) {
+            PostingsList list = this.postings[termId];
+            if (list != null) {
+                list.finish();
+                numTerms = termId + 1;
+                totalBlocks += list.numBlocks();
+                totalBytes += list.sizeInBytes();
+            }
+        }
+        if (totalBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Postings are too large to store in a single index");
+        }
+
+        int[] sizes = new int[numTerms];
+        int[] firstBlocks = new int[numTerms];
+        int[] lastDocIds = new int[totalBlocks];
+        int[] offsets = new int[totalBlocks];
+        byte[] bytes = new byte[(int) totalBytes];
+        int nextBlock = 0;
+        int nextByte = 0;
+        for (int termId = 0; termId < numTerms; termId++) {
+            PostingsList list = this.postings[termId] == null ? NO_POSTINGS : this.postings[termId];
+            sizes[termId] = list.size();
+            firstBlocks[termId] = nextBlock;
+            for (int block = 0; block < list.numBlocks(); block++) {
+                lastDocIds[nextBlock] = list.blockLastDocId(block);
+                offsets[nextBlock] = nextByte + list.blockOffset(block);
+                nextBlock++;
+            }
+            ByteBuffer source = list.data().duplicate();
+            int length = source.remaining();
+            source.get(bytes, nextByte, length);
+            nextByte += length;
+        }
+
+        this.termSizes = IntBuffer.wrap(sizes);
+        this.termFirstBlocks = IntBuffer.wrap(firstBlocks);
+        this.blockLastDocIds = IntBuffer.wrap(lastDocIds);
+        this.blockOffsets = IntBuffer.wrap(offsets);
+        this.data = ByteBuffer.wrap(bytes);
+        this.postings = null;
+    }
+
+    /**
+     * Returns the postings for the given term. If no document contains the term,
+     * returns an empty list.
+     *
+     * @throws IllegalStateException if the index has not been finished
+     */
+    public PostingsList getPostings(int termId) {
+        this.checkFinished();
+        if (termId < 0 || termId >= this.termSizes.limit() || this.termSizes.get(termId) == 0) {
+            return NO_POSTINGS;
+        }
+        return new PostingsList(this.data, this.blockLastDocIds, this.blockOffsets,
+                this.termFirstBlocks.get(termId), this.termSizes.get(termId));
+    }
+
+    /**
+     * Returns the number of bytes used to store every encoded postings list.
+     */
+    public long sizeInBytes() {
+        if (this.postings == null) {
+            return this.data.limit();
+        }
+        long total = 0;
+        for (PostingsList list : this.postings) {
+            if (list != null) {
+                total += list.sizeInBytes();
+            }
+        }
+        return total;
+    }
+
+    private void checkFinished() {
+        if (this.postings != null) {
+            throw new IllegalStateException("Index has not been finished");
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package search.index;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Walks over the postings of a single PostingsList in increasing document order.
+ *
+ * The cursor decodes one block at a time into buffers it reuses for every block, so
+ * iterating never allocates. A cursor starts out positioned before the first posting;
+ * call 'nextDoc' or 'advance' to move it.
+ */
+public class PostingsCursor {
+    /**
+     * Returned once the cursor has moved past the last posting.
+     */
+    public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    private final int[] docIds;
+    private final int[] counts;
+
+    private PostingsList list;
+    private int block;
+    private int blockSize;
+    private int position;
+    private int docId;
+
+    /**
+     * Constructs a cursor over the given list.
+     *
+     * @throws IllegalStateException if the list has not been finished
+     */
+    public PostingsCursor(PostingsList list) {
+        this.docIds = new int[PostingsList.BLOCK_SIZE];
+        this.counts = new int[PostingsList.BLOCK_SIZE];
+        this.reset(list);
+    }
+
+    /**
+     * Repositions this cursor before the first posting of the given list, so the same
+     * cursor (and its buffers) can be reused for another term.
+     *
+     * @throws IllegalStateException if the list has not been finished
+     */
+    public void reset(PostingsList list) {
+        if (!list.isFinished()) {
+            throw new IllegalStateException("Cannot read a postings list before it is finished");
+        }
+        this.list = list;
+        this.block = -1;
+        this.blockSize = 0;
+        this.position = -1;
+        this.docId = -1;
+    }
+
+    /**
+     * Returns the document id the cursor is currently positioned at, -1 if it has not
+     * been moved yet, or NO_MORE_DOCS if it is exhausted.
+     */
+    public int docId() {
+        return this.docId;
+    }
+
+    /**
+     * Returns how many times the term appears in the current document.
+     */
+    public int count() {
+        return this.counts[this.position];
+    }
+
+    /**
+     * Returns the number of postings in the underlying list.
+     */
+    public int size() {
+        return this.list.size();
+    }
+
+    /**
+     * Moves to the next posting and returns its document id, or NO_MORE_DOCS if there
+     * are none left.
+     */
+    public int nextDoc() {
+        if (this.docId == NO_MORE_DOCS) {
+            return NO_MORE_DOCS;
+        }
+        this.position++;
+        if (this.position >= this.blockSize) {
+            if (this.block + 1 >= this.list.numBlocks()) {
+                this.docId = NO_MORE_DOCS;
+                return NO_MORE_DOCS;
+            }
+            this.decodeBlock(this.block + 1);
+        }
+        this.docId = this.docIds[this.position];
+        return this.docId;
+    }
+
+    /**
+     * Moves to the first posting whose document id is greater than or equal to the target
+     * and returns its id, or NO_MORE_DOCS if there is no such posting. Blocks that end before
+     * the target are skipped without being decoded.
+     *
+     * If the cursor is already positioned at or past the target, it does not move.
+     */
+    public int advance(int target) {
+        if (this.docId >= target) {
+            return this.docId;
+        }
+        if (this.block < 0 || this.list.blockLastDocId(this.block) < target) {
+            int next = this.block + 1;
+            while (next < this.list.numBlocks() && this.list.blockLastDocId(next) < target) {
+                next++;
+            }
+            if (next >= this.list.numBlocks()) {
+                this.docId = NO_MORE_DOCS;
+                return NO_MORE_DOCS;
+            }
+            this.decodeBlock(next);
+        }
+        while (this.docIds[this.position] < target) {
+            this.position++;
+        }
+        this.docId = this.docIds[this.position];
+        return this.docId;
+    }
+
+    private void decodeBlock(int newBlock) {
+        ByteBuffer data = this.list.data();
+        int offset = this.list.blockOffset(newBlock);
+        int previous = newBlock == 0 ? 0 : this.list.blockLastDocId(newBlock - 1);
+        this.block = newBlock;
+        this.blockSize = this.list.blockSize(newBlock);
+        this.position = 0;
+
+        for (int i = 0; i < this.blockSize; i++) {
+            int value = 0;
+            int shift = 0;
+            byte next = data.get(offset);
+            offset++;
+            while (next < 0) {
+                value |= (next & 0x7F) << shift;
+                shift += 7;
+                next = data.get(offset);
+                offset++;
+            }
+            previous += value | (next << shift);
+            this.docIds[i] = previous;
+        }
+        for (int i = 0; i < this.blockSize; i++) {
+            int value = 0;
+            int shift = 0;
+            byte next = data.get(offset);
+            offset++;
+            while (next < 0) {
+                value |= (next & 0x7F) << shift;
+                shift += 7;
+                next = data.get(offset);
+                offset++;
+            }
+            this.counts[i] = value | (next << shift);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package search.index;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * The postings list of a single term: the ids of every document containing the term,
+ * in increasing order, along with how many times the term appears in each of them.
+ *
+ * Postings are stored compressed. They are grouped into blocks of BLOCK_SIZE postings;
+ * within a block, each document id is stored as the (variable-byte encoded) gap from the
+ * previous id, followed by the variable-byte encoded counts. Since gaps and counts are
+ * usually small, most postings take up two bytes. We also remember the last document id
+ * and starting offset of every block so a PostingsCursor can skip blocks it does not need.
+ *
+ * Postings are first added using 'add', then 'finish' must be called exactly once before
+ * the list can be read. A finished list only reads its postings through buffers, so the
+ * InvertedIndex can also hand out lists that are views over one large shared buffer
+ * (for example, a memory-mapped index file) instead of each owning its own arrays.
+ */
+public class PostingsList {
+    public static final int BLOCK_SIZE = 128;
+
+    private static final int INITIAL_BYTES = 8;
+    private static final int INITIAL_BLOCKS = 1;
+
+    // The encoded postings, along with the last document id and starting offset (within
+    // 'data') of every block. These are null until the list is finished. A list may share
+    // these buffers with other lists, so its own blocks start at index 'firstBlock'.
+    private ByteBuffer data;
+    private IntBuffer blockLastDocIds;
+    private IntBuffer blockOffsets;
+    private int firstBlock;
+
+    private int numBlocks;
+    private int size;
+
+    // The postings encoded so far, and the last document id and offset of each of their
+    // blocks. These are discarded once the list is finished.
+    private byte[] encoded;
+    private int encodedLength;
+    private int[] encodedLastDocIds;
+    private int[] encodedOffsets;
+
+    // Postings that have been added, but not yet encoded into a block. These are
+    // discarded once the list is finished.
+    private int[] pendingDocIds;
+    private int[] pendingCounts;
+    private int numPending;
+
+    /**
+     * Constructs a new, empty postings list.
+     */
+    public PostingsList() {
+        this.encoded = new byte[INITIAL_BYTES];
+        this.encodedLength = 0;
+        this.encodedLastDocIds = new int[INITIAL_BLOCKS];
+        this.encodedOffsets = new int[INITIAL_BLOCKS];
+        this.numBlocks = 0;
+        this.size = 0;
+        this.pendingDocIds = new int[BLOCK_SIZE];
+        this.pendingCounts = new int[BLOCK_SIZE];
+        this.numPending = 0;
+    }
+
+    /**
+     * Constructs a finished list whose blocks are stored in the given buffers, starting
+     * at the given block. The buffers are shared, not copied.
+     */
+    PostingsList(ByteBuffer data, IntBuffer blockLastDocIds, IntBuffer blockOffsets, int firstBlock, int size) {
+        this.data = data;
+        this.blockLastDocIds = blockLastDocIds;
+        this.blockOffsets = blockOffsets;
+        this.firstBlock = firstBlock;
+        this.numBlocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.size = size;
+    }
+
+    /**
+     * Appends a posting to the end of this list.
+     *
+     * @throws IllegalArgumentException if the id is not larger than every id already added,
+     *                                  or if the count is not positive
+     * @throws IllegalStateException    if the list has already been finished
+     */
+    public void add(int docId, int count) {
+        if (this.isFinished()) {
+            throw new IllegalStateException("Cannot add postings to a finished list");
+        }
+        if (this.size > 0 && docId <= this.lastDocId()) {
+            throw new IllegalArgumentException("Postings must be added in increasing document order");
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        this.pendingDocIds[this.numPending] = docId;
+        this.pendingCounts[this.numPending] = count;
+        this.numPending++;
+        this.size++;
+        if (this.numPending == BLOCK_SIZE) {
+            this.flushBlock();
+        }
+    }
+
+    /**
+     * Encodes any remaining postings and trims the storage down to size. No more postings
+     * may be added afterwards.
+     */
+    public void finish() {
+        if (this.isFinished()) {
+            throw new IllegalStateException("List has already been finished");
+        }
+        if (this.numPending > 0) {
+            this.flushBlock();
+        }
+        this.data = ByteBuffer.wrap(Arrays.copyOf(this.encoded, this.encodedLength));
+        this.blockLastDocIds = IntBuffer.wrap(Arrays.copyOf(this.encodedLastDocIds, this.numBlocks));
+        this.blockOffsets = IntBuffer.wrap(Arrays.copyOf(this.encodedOffsets, this.numBlocks));
+        this.firstBlock = 0;
+        this.encoded = null;
+        this.encodedLastDocIds = null;
+        this.encodedOffsets = null;
+        this.pendingDocIds = null;
+        this.pendingCounts = null;
+    }
+
+    /**
+     * Returns a new cursor positioned before the first posting in this list.
+     *
+     * @throws IllegalStateException if the list has not been finished
+     */
+    public PostingsCursor cursor() {
+        return new PostingsCursor(this);
+    }
+
+    /**
+     * Returns the number of documents containing this term.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of bytes used to store the encoded postings.
+     */
+    public int sizeInBytes() {
+        if (!this.isFinished()) {
+            return this.encodedLength;
+        }
+        if (this.numBlocks == 0) {
+            return 0;
+        }
+        return this.endOffset() - this.blockOffset(0);
+    }
+
+    boolean isFinished() {
+        return this.data != null;
+    }
+
+    int numBlocks() {
+        return this.numBlocks;
+    }
+
+    int blockLastDocId(int block) {
+        return this.blockLastDocIds.get(this.firstBlock + block);
+    }
+
+    /**
+     * Returns the offset within 'data' of the first byte of the given block.
+     */
+    int blockOffset(int block) {
+        return this.blockOffsets.get(this.firstBlock + block);
+    }
+
+    /**
+     * Returns the number of postings stored in the given block.
+     */
+    int blockSize(int block) {
+        return block == this.numBlocks - 1 ? this.size - block * BLOCK_SIZE : BLOCK_SIZE;
+    }
+
+    ByteBuffer data() {
+        return this.data;
+    }
+
+    /**
+     * Returns the offset within 'data' just past the last byte of this list.
+     */
+    int endOffset() {
+        int nextBlock = this.firstBlock + this.numBlocks;
+        return nextBlock < this.blockOffsets.limit() ? this.blockOffsets.get(nextBlock) : this.data.limit();
+    }
+
+    private int lastDocId() {
+        if (this.numPending > 0) {
+            return this.pendingDocIds[this.numPending - 1];
+        }
+        return this.encodedLastDocIds[this.numBlocks - 1];
+    }
+
+    private void flushBlock() {
+        if (this.numBlocks == this.encodedOffsets.length) {
+            this.encodedOffsets = Arrays.copyOf(this.encodedOffsets, 2 * this.numBlocks);
+            this.encodedLastDocIds = Arrays.copyOf(this.encodedLastDocIds, 2 * this.numBlocks);
+        }
+        int previous = this.numBlocks == 0 ? 0 : this.encodedLastDocIds[this.numBlocks - 1];
+        this.encodedOffsets[this.numBlocks] = this.encodedLength;
+        this.encodedLastDocIds[this.numBlocks] = this.pendingDocIds[this.numPending - 1];
+        this.numBlocks++;
+
+        for (int i = 0; i < this.numPending; i++) {
+            this.writeVByte(this.pendingDocIds[i] - previous);
+            previous = this.pendingDocIds[i];
+        }
+        for (int i = 0; i < this.numPending; i++) {
+            this.writeVByte(this.pendingCounts[i]);
+        }
+        this.numPending = 0;
+    }
+
+    /**
+     * Appends the given non-negative number using a variable-byte encoding: seven bits per
+     * byte, lowest bits first, with the high bit set on every byte except the last.
+     */
+    private void writeVByte(int value) {
+        if (this.encodedLength + 5 > this.encoded.length) {
+            this.encoded = Arrays.copyOf(this.encoded, Math.max(2 * this.encoded.length, this.encodedLength + 5));
+        }
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            this.encoded[this.encodedLength] = (byte) ((remaining & 0x7F) | 0x80);
+            this.encodedLength++;
+            remaining >>>= 7;
+        }
+        this.encoded[this.encodedLength] = (byte) remaining;
+        this.encodedLength++;
+    }
+}
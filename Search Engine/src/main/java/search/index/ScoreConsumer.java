@@ -0,0 +1,10 @@
+package search.index;
+
+/**
+ * Receives the score computed for a single document, identified by its id in the
+ * DocumentRegistry.
+ */
+@FunctionalInterface
+public interface ScoreConsumer {
+    void accept(int docId, double score);
+}
@@ -0,0 +1,51 @@
+package search.index;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The lowest score a document needs to beat to make it into the top k, shared by every
+ * task searching part of the same index at once.
+ *
+ * Each task keeps its own top k in a TopKDoubleHeap. Once a task's heap holds k
+ * documents, no document scoring at most the lowest of them can make it into the overall
+ * top k either, so the task publishes that score here, and every other task can skip such
+ * documents straight away instead of first filling a heap of its own.
+ *
+ * The score is kept as the bits of a double in an AtomicLong, so reading it never locks.
+ */
+public class SharedThreshold {
+    private final int k;
+    private final AtomicLong bits;
+
+    /**
+     * Constructs a threshold for a search for the top k documents, starting at negative
+     * infinity.
+     */
+    public SharedThreshold(int k) {
+        this.k = k;
+        this.bits = new AtomicLong(Double.doubleToLongBits(Double.NEGATIVE_INFINITY));
+    }
+
+    /**
+     * Returns the highest score published so far.
+     */
+    public double get() {
+        return Double.longBitsToDouble(this.bits.get());
+    }
+
+    /**
+     * Publishes the threshold of the given heap, if the heap holds k documents and its
+     * threshold is higher than the one published so far.
+     */
+    public void update(TopKDoubleHeap heap) {
+        if (heap.size() < this.k) {
+            return;
+        }
+        double threshold = heap.threshold();
+        long current = this.bits.get();
+        while (threshold > Double.longBitsToDouble(current)
+                && !this.bits.compareAndSet(current, Double.doubleToLongBits(threshold))) {
+            current = this.bits.get();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package search.index;
+
+import search.misc.BinaryIO;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An immutable list of strings, stored back to back as UTF-8 in a single buffer.
+ *
+ * A table can also be built 'searchable', in which case it stores the indices of its
+ * strings sorted by their bytes, so 'indexOf' can find a string with a binary search
+ * instead of needing a hash table. Since the table is nothing but three buffers, it can
+ * be read straight out of a memory-mapped file without building anything on the heap.
+ */
+public class StringTable {
+    // The string at index i occupies the bytes offsets[i] up to (but not including)
+    // offsets[i + 1].
+    private IntBuffer offsets;
+    private ByteBuffer bytes;
+
+    // The index of every string, in increasing order of the strings' bytes. Empty if
+    // the table is not searchable.
+    private IntBuffer sorted;
+
+    private StringTable(IntBuffer offsets, IntBuffer sorted, ByteBuffer bytes) {
+        this.offsets = offsets;
+        this.sorted = sorted;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Returns a table containing the given strings in the given order.
+     *
+     * @param searchable  whether the returned table should support 'indexOf'
+     */
+    public static StringTable of(String[] strings, boolean searchable) {
+        byte[][] encoded = new byte[strings.length][];
+        int[] offsets = new int[strings.length + 1];
+        for (int i = 0; i < strings.length; i++) {
+            encoded[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+            offsets[i + 1] = Math.addExact(offsets[i], encoded[i].length);
+        }
+        byte[] bytes = new byte[offsets[strings.length]];
+        for (int i = 0; i < strings.length; i++) {
+            System.arraycopy(encoded[i], 0, bytes, offsets[i], encoded[i].length);
+        }
+
+        int[] sorted = new int[0];
+        if (searchable) {
+            Integer[] order = new Integer[strings.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> compareBytes(encoded[a], encoded[b]));
+            sorted = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sorted[i] = order[i];
+            }
+        }
+        return new StringTable(IntBuffer.wrap(offsets), IntBuffer.wrap(sorted), ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads a table written by 'writeTo', returning a view over the given buffer rather
+     * than a copy, and moves the buffer past it.
+     *
+     * @throws IOException if the buffer ends early or does not contain a valid table
+     */
+    public static StringTable readFrom(ByteBuffer in) throws IOException {
+        IntBuffer offsets = BinaryIO.sliceInts(in);
+        IntBuffer sorted = BinaryIO.sliceInts(in);
+        ByteBuffer bytes = BinaryIO.sliceBytes(in);
+        int size = offsets.limit() - 1;
+        if (size < 0 || offsets.get(0) != 0 || offsets.get(size) != bytes.limit()) {
+            throw new IOException("Corrupt string table: offsets do not match the bytes");
+        }
+        if (sorted.limit() != 0 && sorted.limit() != size) {
+            throw new IOException("Corrupt string table: wrong number of sorted entries");
+        }
+        return new StringTable(offsets, sorted, bytes);
+    }
+
+    /**
+     * Writes this table to the given output.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        BinaryIO.writeInts(out, this.offsets);
+        BinaryIO.writeInts(out, this.sorted);
+        BinaryIO.writeBytes(out, this.bytes);
+    }
+
+    /**
+     * Returns the number of strings in this table.
+     */
+    public int size() {
+        return this.offsets.limit() - 1;
+    }
+
+    /**
+     * Returns the string at the given index.
+     *
+     * @throws IndexOutOfBoundsException if the index is not between 0 and size() - 1
+     */
+    public String get(int index) {
+        if (index < 0 || index >= this.size()) {
+            throw new IndexOutOfBoundsException();
+        }
+        return BinaryIO.decodeString(this.bytes, this.offsets.get(index), this.offsets.get(index + 1));
+    }
+
+    /**
+     * Returns the index of the given string, or -1 if the table does not contain it.
+     *
+     * @throws UnsupportedOperationException if the table was not built searchable
+     */
+    public int indexOf(String value) {
+        if (this.sorted.limit() != this.size()) {
+            throw new UnsupportedOperationException("Table is not searchable");
+        }
+        byte[] target = value.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = this.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int index = this.sorted.get(middle);
+            int comparison = this.compareTo(index, target);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the bytes of the string at the given index to the given bytes, treating
+     * each byte as unsigned.
+     */
+    private int compareTo(int index, byte[] target) {
+        int start = this.offsets.get(index);
+        int length = this.offsets.get(index + 1) - start;
+        int common = Math.min(length, target.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (this.bytes.get(start + i) & 0xFF) - (target[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - target.length;
+    }
+
+    private static int compareBytes(byte[] first, byte[] second) {
+        int common = Math.min(first.length, second.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (first[i] & 0xFF) - (second[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return first.length - second.length;
+    }
+}
@@ -0,0 +1,150 @@
+package search.index;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the k highest scoring documents offered to it, as a min-heap of scores with the
+ * matching document ids alongside.
+ *
+ * The scores and ids live in two arrays, so offering a document never boxes anything,
+ * and the lowest score kept (the one a new document has to beat) is always at the root.
+ * The arrays start small and double in size as documents are kept, up to k, so asking
+ * for far more documents than will ever be offered costs no more than asking for as many
+ * as there are. Once every document has been offered, the heap is sorted in place to
+ * hand the winners out in decreasing order of score.
+ */
+public class TopKDoubleHeap {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+    private double[] scores;
+    private int[] docIds;
+    private int size;
+
+    /**
+     * Constructs an empty heap that keeps at most k documents.
+     *
+     * @throws IllegalArgumentException if k < 0
+     */
+    public TopKDoubleHeap(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        this.k = k;
+        this.scores = new double[Math.min(k, INITIAL_CAPACITY)];
+        this.docIds = new int[Math.min(k, INITIAL_CAPACITY)];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of documents currently kept.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the score a document must beat to be kept: the lowest score kept if the
+     * heap is full, and negative infinity otherwise.
+     */
+    public double threshold() {
+        if (this.size < this.k) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return this.size == 0 ? Double.POSITIVE_INFINITY : this.scores[0];
+    }
+
+    /**
+     * Keeps the given document if the heap is not full yet, or if its score is higher
+     * than the lowest score kept, in which case that document is dropped. Returns
+     * whether the document was kept.
+     */
+    public boolean offer(int docId, double score) {
+        if (this.size < this.k) {
+            if (this.size == this.scores.length) {
+                this.grow();
+            }
+            int child = this.size;
+            this.size++;
+            // Move parents down until we find where the new document belongs.
+            while (child > 0) {
+                int parent = (child - 1) / 2;
+                if (this.scores[parent] <= score) {
+                    break;
+                }
+                this.scores[child] = this.scores[parent];
+                this.docIds[child] = this.docIds[parent];
+                child = parent;
+            }
+            this.scores[child] = score;
+            this.docIds[child] = docId;
+            return true;
+        }
+        if (this.size == 0 || score <= this.scores[0]) {
+            return false;
+        }
+        this.siftDown(0, docId, score, this.size);
+        return true;
+    }
+
+    /**
+     * Offers every document kept by the given heap to this one.
+     */
+    public void addAll(TopKDoubleHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            this.offer(other.docIds[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * Passes every document kept, with its score, to the given consumer in decreasing
+     * order of score, and empties the heap. Ties are broken arbitrarily.
+     */
+    public void drainDescending(ScoreConsumer consumer) {
+        // Heapsort: repeatedly swap the lowest remaining score to the end of the heap.
+        // Once done, the arrays are sorted from highest to lowest score.
+        for (int end = this.size - 1; end > 0; end--) {
+            double lowestScore = this.scores[0];
+            int lowestDoc = this.docIds[0];
+            this.siftDown(0, this.docIds[end], this.scores[end], end);
+            this.scores[end] = lowestScore;
+            this.docIds[end] = lowestDoc;
+        }
+        for (int i = 0; i < this.size; i++) {
+            consumer.accept(this.docIds[i], this.scores[i]);
+        }
+        this.size = 0;
+    }
+
+    /**
+     * Doubles the size of the arrays, without going past k.
+     */
+    private void grow() {
+        int capacity = (int) Math.min(this.k, 2L * this.scores.length);
+        this.scores = Arrays.copyOf(this.scores, capacity);
+        this.docIds = Arrays.copyOf(this.docIds, capacity);
+    }
+
+    /**
+     * Places the given document at the given position of the heap made of the first
+     * 'heapSize' entries, moving it down past any child with a lower score.
+     */
+    private void siftDown(int position, int docId, double score, int heapSize) {
+        int parent = position;
+        int child = 2 * parent + 1;
+        while (child < heapSize) {
+            if (child + 1 < heapSize && this.scores[child + 1] < this.scores[child]) {
+                child++;
+            }
+            if (score <= this.scores[child]) {
+                break;
+            }
+            this.scores[parent] = this.scores[child];
+            this.docIds[parent] = this.docIds[child];
+            parent = child;
+            child = 2 * parent + 1;
+        }
+        this.scores[parent] = score;
+        this.docIds[parent] = docId;
+    }
+}
@@ -0,0 +1,181 @@
+package search.index;
+
+import search.misc.Deadline;
+
+/**
+ * Finds the k highest scoring documents for a query using the WAND ("weak AND")
+ * algorithm, without scoring every document that contains a query term.
+ *
+ * Each query term comes with an upper bound on how much it can add to any document's
+ * score. We keep the best k documents seen so far in a heap. Before scoring a document,
+ * we add up the upper bounds of every term that could possibly appear in it; if that
+ * sum cannot beat the worst document in the heap, we skip straight past it (and past
+ * every other document that could only contain those same terms).
+ *
+ * A document's score must never be larger than the sum of the upper bounds of the terms
+ * it contains.
+ */
+public class WandEvaluator {
+    // Upper bounds are multiplied by this before being compared against the heap, so
+    // rounding differences between a bound and the score it bounds can never cause us to
+    // skip a document that belongs in the results.
+    private static final double UPPER_BOUND_SLACK = 1.0 + 1e-9;
+
+    // How many times around the main loop we go between looking at the deadline, so
+    // reading the clock never shows up next to the cost of scoring.
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+
+    private PostingsCursor[] cursors;
+    private double[] upperBounds;
+    private int numCursors;
+    private DocumentScorer scorer;
+
+    // The indices of the cursors, sorted by the document each is positioned at.
+    private int[] order;
+
+    /**
+     * Constructs a new evaluator over the first 'numCursors' of the given cursors, which
+     * must not have been moved yet. The i-th upper bound belongs to the i-th cursor.
+     */
+    public WandEvaluator(PostingsCursor[] cursors, double[] upperBounds, int numCursors, DocumentScorer scorer) {
+        this.cursors = cursors;
+        this.upperBounds = upperBounds;
+        this.numCursors = numCursors;
+        this.scorer = scorer;
+        this.order = new int[numCursors];
+        for (int i = 0; i < numCursors; i++) {
+            this.order[i] = i;
+        }
+    }
+
+    /**
+     * Passes the k highest scoring documents, along with their scores, to the given
+     * consumer in decreasing order of score. If fewer than k documents contain any of the
+     * query terms, passes all of them. Ties are broken arbitrarily.
+     *
+     * This method may only be called once.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public void evaluate(int k, ScoreConsumer consumer) {
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        TopKDoubleHeap heap = new TopKDoubleHeap(k);
+        this.evaluate(heap);
+        heap.drainDescending(consumer);
+    }
+
+    /**
+     * Offers every document that could make it into the given heap, along with its score,
+     * to the heap. The heap may already hold documents (for example, the best documents
+     * of another part of the index), in which case only documents that can beat those
+     * are scored.
+     *
+     * This method may only be called once.
+     */
+    public void evaluate(TopKDoubleHeap heap) {
+        this.evaluate(heap, Deadline.NONE);
+    }
+
+    /**
+     * Does the same as 'evaluate' above, but gives up once the given deadline passes.
+     * The heap is left holding whatever documents were offered to it by then.
+     *
+     * Returns the number of documents scored.
+     *
+     * This method may only be called once.
+     *
+     * @throws search.misc.exceptions.QueryTimeoutException if the deadline passes
+     */
+    public int evaluate(TopKDoubleHeap heap, Deadline deadline) {
+        return this.evaluate(heap, null, deadline);
+    }
+
+    /**
+     * Does the same as 'evaluate' above, for one of several tasks searching parts of the
+     * same index at once. Documents that cannot beat the given shared threshold are
+     * skipped, even before the heap is full, and the heap's own threshold is published to
+     * it whenever a document is kept. If the shared threshold is null, only the heap's
+     * own threshold is used.
+     *
+     * @throws search.misc.exceptions.QueryTimeoutException if the deadline passes
+     */
+    public int evaluate(TopKDoubleHeap heap, SharedThreshold shared, Deadline deadline) {
+        if (heap.threshold() == Double.POSITIVE_INFINITY) {
+            return 0;
+        }
+        for (int i = 0; i < this.numCursors; i++) {
+            this.cursors[i].nextDoc();
+        }
+
+        int pivot = this.findPivot(this.threshold(heap, shared));
+        int untilDeadlineCheck = DEADLINE_CHECK_INTERVAL;
+        int scored = 0;
+        while (pivot != -1) {
+            untilDeadlineCheck--;
+            if (untilDeadlineCheck == 0) {
+                deadline.check();
+                untilDeadlineCheck = DEADLINE_CHECK_INTERVAL;
+            }
+            int pivotDoc = this.cursors[this.order[pivot]].docId();
+            if (this.cursors[this.order[0]].docId() == pivotDoc) {
+                if (heap.offer(pivotDoc, this.scorer.score(pivotDoc)) && shared != null) {
+                    shared.update(heap);
+                }
+                scored++;
+                for (int i = 0; i < this.numCursors && this.cursors[this.order[i]].docId() == pivotDoc; i++) {
+                    this.cursors[this.order[i]].nextDoc();
+                }
+            } else {
+                // None of the documents before the pivot can make it into the heap, so
+                // every cursor lagging behind can jump straight to the pivot.
+                for (int i = 0; i < pivot; i++) {
+                    this.cursors[this.order[i]].advance(pivotDoc);
+                }
+            }
+            pivot = this.findPivot(this.threshold(heap, shared));
+        }
+        return scored;
+    }
+
+    /**
+     * Returns the score a document must beat to be worth scoring: the higher of the
+     * heap's threshold and the shared one, if there is one.
+     */
+    private double threshold(TopKDoubleHeap heap, SharedThreshold shared) {
+        double threshold = heap.threshold();
+        return shared == null ? threshold : Math.max(threshold, shared.get());
+    }
+
+    /**
+     * Sorts the cursors by their current document, then returns the position (within
+     * that order) of the first cursor at which the running total of upper bounds exceeds
+     * the threshold. Returns -1 if no remaining document can exceed the threshold.
+     */
+    private int findPivot(double threshold) {
+        for (int i = 1; i < this.numCursors; i++) {
+            int current = this.order[i];
+            int docId = this.cursors[current].docId();
+            int j = i - 1;
+            while (j >= 0 && this.cursors[this.order[j]].docId() > docId) {
+                this.order[j + 1] = this.order[j];
+                j--;
+            }
+            this.order[j + 1] = current;
+        }
+
+        double total = 0.0;
+        for (int i = 0; i < this.numCursors; i++) {
+            int cursor = this.order[i];
+            if (this.cursors[cursor].docId() == PostingsCursor.NO_MORE_DOCS) {
+                return -1;
+            }
+            total += this.upperBounds[cursor];
+            if (total * UPPER_BOUND_SLACK > threshold) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
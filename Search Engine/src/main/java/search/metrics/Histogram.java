@@ -0,0 +1,242 @@
+package search.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts how often each value (usually a latency in nanoseconds) was recorded recently,
+ * closely enough to read off any percentile later on, in a fixed amount of memory.
+ *
+ * Like HdrHistogram, values are sorted into buckets on a log-linear scale: every power of
+ * two is split into 32 equally sized buckets, so a percentile read back from the histogram
+ * is never more than about 3% larger than the true value, however large the values get.
+ * Values below 32 each get a bucket of their own, and so are counted exactly.
+ *
+ * Percentiles only cover a sliding window of recent values (the last minute, by default),
+ * so a spike or a recovery shows up in them straight away rather than being drowned out
+ * by hours of earlier values. The window is a ring of slots, each counting the values of
+ * one slice of time; a slot is emptied and reused once its slice has left the window. The
+ * number and sum of values, on the other hand, cover everything ever recorded.
+ *
+ * Recording a value takes a few atomic increments and never allocates, so any number of
+ * threads may record values at once; the only lock is taken once per slice of time, by
+ * whichever thread first finds a slot that needs emptying.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Enough buckets for every non-negative long: the largest one lands in bucket
+    // (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + (SUB_BUCKETS - 1).
+    private static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private static final long DEFAULT_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int DEFAULT_WINDOW_SLOTS = 6;
+
+    private final LongSupplier clock;
+    private final long slotNanos;
+
+    // Slot i counts the values recorded during slice slices[i] of time, where slice n
+    // runs from n * slotNanos up to (but not including) (n + 1) * slotNanos.
+    private final AtomicLongArray[] counts;
+    private final AtomicLongArray slices;
+    private final AtomicLongArray maxes;
+
+    private final LongAdder count;
+    private final LongAdder sum;
+
+    /**
+     * Constructs a histogram whose percentiles cover the last minute.
+     */
+    public Histogram() {
+        this(DEFAULT_WINDOW_NANOS, DEFAULT_WINDOW_SLOTS, System::nanoTime);
+    }
+
+    /**
+     * Constructs a histogram whose percentiles cover the last 'windowNanos', split into the
+     * given number of slots, reading the time in nanoseconds from the given clock. Values
+     * leave the window one slot at a time, so the percentiles actually cover between
+     * (windowSlots - 1) and windowSlots slots' worth of time.
+     *
+     * @throws IllegalArgumentException if windowSlots < 1, or windowNanos is smaller than
+     *                                  windowSlots
+     */
+    public Histogram(long windowNanos, int windowSlots, LongSupplier clock) {
+        if (windowSlots < 1 || windowNanos < windowSlots) {
+            throw new IllegalArgumentException("Window must have at least one nanosecond per slot");
+        }
+        this.clock = clock;
+        this.slotNanos = windowNanos / windowSlots;
+        this.counts = new AtomicLongArray[windowSlots];
+        for (int i = 0; i < windowSlots; i++) {
+            this.counts[i] = new AtomicLongArray(NUM_BUCKETS);
+        }
+        // Every slot starts out empty, so it may as well claim to hold the current slice.
+        this.slices = new AtomicLongArray(windowSlots);
+        long now = this.currentSlice();
+        for (int i = 0; i < windowSlots; i++) {
+            this.slices.set(i, now);
+        }
+        this.maxes = new AtomicLongArray(windowSlots);
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+    }
+
+    /**
+     * Records the given value. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+        int slot = this.currentSlot();
+        this.counts[slot].incrementAndGet(bucketIndex(clamped));
+        this.maxes.accumulateAndGet(slot, clamped, Math::max);
+        this.count.increment();
+        this.sum.add(clamped);
+    }
+
+    /**
+     * Returns a copy of everything recorded so far, to read percentiles from. Values
+     * recorded while the copy is being made may or may not be part of it.
+     */
+    public Snapshot snapshot() {
+        long now = this.currentSlice();
+        long[] copy = new long[NUM_BUCKETS];
+        long inWindow = 0;
+        long max = 0;
+        for (int slot = 0; slot < this.counts.length; slot++) {
+            long slice = this.slices.get(slot);
+            if (slice <= now - this.counts.length || slice > now) {
+                continue;
+            }
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                long bucketCount = this.counts[slot].get(i);
+                copy[i] += bucketCount;
+                inWindow += bucketCount;
+            }
+            max = Math.max(max, this.maxes.get(slot));
+        }
+        return new Snapshot(copy, inWindow, this.count.sum(), this.sum.sum(), max);
+    }
+
+    private long currentSlice() {
+        return Math.floorDiv(this.clock.getAsLong(), this.slotNanos);
+    }
+
+    /**
+     * Returns the slot counting the current slice of time, emptying it first if it still
+     * holds the values of an older slice.
+     */
+    private int currentSlot() {
+        long now = this.currentSlice();
+        int slot = (int) Math.floorMod(now, (long) this.counts.length);
+        if (this.slices.get(slot) < now) {
+            synchronized (this) {
+                if (this.slices.get(slot) < now) {
+                    for (int i = 0; i < NUM_BUCKETS; i++) {
+                        this.counts[slot].set(i, 0);
+                    }
+                    this.maxes.set(slot, 0);
+                    this.slices.set(slot, now);
+                }
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the bucket the given non-negative value is counted in.
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // The top SUB_BUCKET_BITS + 1 bits of the value pick the bucket: the position of
+        // the highest one bit picks the power of two, and the bits after it pick one of
+        // the sub-buckets inside it.
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest value counted in the given bucket.
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        // For the very last bucket, the shift overflows to Long.MIN_VALUE, and subtracting
+        // one wraps around to Long.MAX_VALUE: exactly where that bucket ends.
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * The counts of a histogram at one point in time.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long inWindow;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long inWindow, long count, long sum, long max) {
+            this.counts = counts;
+            this.inWindow = inWindow;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Returns the number of values ever recorded.
+         */
+        public long getCount() {
+            return this.count;
+        }
+
+        /**
+         * Returns the sum of every value ever recorded.
+         */
+        public long getSum() {
+            return this.sum;
+        }
+
+        /**
+         * Returns the largest value recorded within the window, or 0 if there are none.
+         */
+        public long getMax() {
+            return this.max;
+        }
+
+        /**
+         * Returns a value at least as large as the given fraction of the values recorded
+         * within the window (so 0.99 gives the 99th percentile), and at most about 3%
+         * larger than the smallest such value. Returns 0 if no values were recorded
+         * within the window.
+         *
+         * @throws IllegalArgumentException if the quantile is not between 0 and 1
+         */
+        public long valueAtQuantile(double quantile) {
+            if (!(quantile >= 0.0 && quantile <= 1.0)) {
+                throw new IllegalArgumentException("Quantile must be between 0 and 1");
+            }
+            if (this.inWindow == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * this.inWindow));
+            long seen = 0;
+            for (int i = 0; i < this.counts.length; i++) {
+                seen += this.counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), this.max);
+                }
+            }
+            return this.max;
+        }
+    }
+}
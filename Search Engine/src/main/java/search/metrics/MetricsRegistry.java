@@ -0,0 +1,265 @@
+package search.metrics;
+
+import datastructures.concrete.GrowableArrayList;
+import datastructures.interfaces.IList;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds every metric we track, and writes them all out in the Prometheus text format.
+ *
+ * Metrics are grouped into families sharing a name, a help text and a type. Each metric
+ * in a family may carry one label telling it apart from the others: for example, the
+ * family 'search_stage_latency_seconds' holds one histogram per stage of a search, with
+ * a 'stage' label holding the stage's name.
+ *
+ * Metrics are registered once (usually when the object updating them is constructed)
+ * and kept in fields from then on, so updating one never goes through the registry.
+ * Asking for a metric that is already registered returns the existing one.
+ *
+ * Histograms are exposed as Prometheus summaries, with a handful of quantiles covering
+ * the last minute or so, so they follow changes in latency as they happen. Their sum and
+ * count cover everything recorded since the registry was created, as Prometheus expects,
+ * so averages over any range can still be worked out from them.
+ */
+public class MetricsRegistry {
+    // The quantiles every histogram is exposed with, over the histogram's window.
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    // How many seconds a nanosecond is, to convert latencies recorded in nanoseconds.
+    private static final double NANOS_TO_SECONDS = 1e-9;
+
+    private final IList<Family> families;
+
+    public MetricsRegistry() {
+        this.families = new GrowableArrayList<>();
+    }
+
+    /**
+     * Returns the counter with the given name.
+     */
+    public Counter counter(String name, String help) {
+        return (Counter) this.register(name, help, "counter", 1.0, null, null, new Counter());
+    }
+
+    /**
+     * Registers a counter whose value is read from the given function whenever the
+     * metrics are written out. Does nothing if the counter is already registered.
+     */
+    public void counter(String name, String help, LongSupplier value) {
+        this.register(name, help, "counter", 1.0, null, null, value);
+    }
+
+    /**
+     * Returns the gauge with the given name and label.
+     */
+    public Gauge gauge(String name, String help, String labelName, String labelValue) {
+        return (Gauge) this.register(name, help, "gauge", 1.0, labelName, labelValue, new Gauge());
+    }
+
+    /**
+     * Registers a gauge whose value is read from the given function whenever the metrics
+     * are written out. Does nothing if the gauge is already registered.
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        this.register(name, help, "gauge", 1.0, null, null, value);
+    }
+
+    /**
+     * Returns the histogram of latencies, recorded in nanoseconds, with the given name and
+     * label. The name should end in '_seconds': that is what the latencies are written
+     * out in.
+     */
+    public Histogram latency(String name, String help, String labelName, String labelValue) {
+        return (Histogram) this.register(name, help, "summary", NANOS_TO_SECONDS, labelName, labelValue,
+                new Histogram());
+    }
+
+    /**
+     * Returns the histogram of plain numbers (such as counts) with the given name.
+     */
+    public Histogram distribution(String name, String help) {
+        return (Histogram) this.register(name, help, "summary", 1.0, null, null, new Histogram());
+    }
+
+    /**
+     * Writes out every metric in the Prometheus text format, version 0.0.4, in the order
+     * they were registered.
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        Family[] snapshot;
+        synchronized (this) {
+            snapshot = new Family[this.families.size()];
+            int i = 0;
+            for (Family family : this.families) {
+                snapshot[i] = family;
+                i++;
+            }
+        }
+
+        for (Family family : snapshot) {
+            out.write("# HELP " + family.name + " " + family.help + "\n");
+            out.write("# TYPE " + family.name + " " + family.type + "\n");
+            Metric[] metrics;
+            synchronized (this) {
+                metrics = new Metric[family.metrics.size()];
+                int i = 0;
+                for (Metric metric : family.metrics) {
+                    metrics[i] = metric;
+                    i++;
+                }
+            }
+            for (Metric metric : metrics) {
+                this.writeMetric(out, family, metric);
+            }
+        }
+    }
+
+    private void writeMetric(Writer out, Family family, Metric metric) throws IOException {
+        String label = metric.labelName == null ? "" : metric.labelName + "=\"" + escape(metric.labelValue) + "\"";
+        Object value = metric.value;
+        if (value instanceof Histogram) {
+            Histogram.Snapshot snapshot = ((Histogram) value).snapshot();
+            String separator = label.isEmpty() ? "" : ",";
+            for (double quantile : QUANTILES) {
+                writeSample(out, family.name, label + separator + "quantile=\"" + quantile + "\"",
+                        snapshot.valueAtQuantile(quantile) * family.scale);
+            }
+            writeSample(out, family.name + "_sum", label, snapshot.getSum() * family.scale);
+            writeSample(out, family.name + "_count", label, snapshot.getCount());
+        } else if (value instanceof Counter) {
+            writeSample(out, family.name, label, ((Counter) value).get());
+        } else if (value instanceof Gauge) {
+            writeSample(out, family.name, label, ((Gauge) value).get());
+        } else if (value instanceof LongSupplier) {
+            writeSample(out, family.name, label, ((LongSupplier) value).getAsLong());
+        } else {
+            writeSample(out, family.name, label, ((DoubleSupplier) value).getAsDouble());
+        }
+    }
+
+    private static void writeSample(Writer out, String name, String labels, double value) throws IOException {
+        out.write(name);
+        if (!labels.isEmpty()) {
+            out.write("{" + labels + "}");
+        }
+        out.write(" ");
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.write(Long.toString((long) value));
+        } else {
+            out.write(Double.toString(value));
+        }
+        out.write("\n");
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Returns the metric with the given name and label, adding the given one if there is
+     * no such metric yet.
+     *
+     * @throws IllegalArgumentException if a family with the given name already exists
+     *                                  with a different type, or the metric is already
+     *                                  registered as a function
+     */
+    private synchronized Object register(String name, String help, String type, double scale,
+                                         String labelName, String labelValue, Object metric) {
+        Family family = null;
+        for (Family existing : this.families) {
+            if (existing.name.equals(name)) {
+                family = existing;
+            }
+        }
+        if (family == null) {
+            family = new Family(name, help, type, scale);
+            this.families.add(family);
+        } else if (!family.type.equals(type) || family.scale != scale) {
+            throw new IllegalArgumentException("Metric '" + name + "' is already registered as a different type");
+        }
+
+        for (Metric existing : family.metrics) {
+            if (equal(existing.labelName, labelName) && equal(existing.labelValue, labelValue)) {
+                boolean isFunction = metric instanceof LongSupplier || metric instanceof DoubleSupplier;
+                if (!isFunction && existing.value.getClass() != metric.getClass()) {
+                    throw new IllegalArgumentException("Metric '" + name + "' is already registered as a function");
+                }
+                return existing.value;
+            }
+        }
+        family.metrics.add(new Metric(labelName, labelValue, metric));
+        return metric;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * A number that only ever goes up, such as the number of requests served.
+     */
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            this.value.increment();
+        }
+
+        public void add(long amount) {
+            this.value.add(amount);
+        }
+
+        public long get() {
+            return this.value.sum();
+        }
+    }
+
+    /**
+     * A number that can be set to anything, such as how long the last index build took.
+     */
+    public static class Gauge {
+        private final AtomicLong bits = new AtomicLong(Double.doubleToLongBits(0.0));
+
+        public void set(double value) {
+            this.bits.set(Double.doubleToLongBits(value));
+        }
+
+        public double get() {
+            return Double.longBitsToDouble(this.bits.get());
+        }
+    }
+
+    private static class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final double scale;
+        private final IList<Metric> metrics;
+
+        Family(String name, String help, String type, double scale) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.scale = scale;
+            this.metrics = new GrowableArrayList<>();
+        }
+    }
+
+    private static class Metric {
+        private final String labelName;
+        private final String labelValue;
+        private final Object value;
+
+        Metric(String labelName, String labelValue, Object value) {
+            this.labelName = labelName;
+            this.labelValue = labelValue;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package search.metrics;
+
+import datastructures.interfaces.IList;
+import search.misc.JsonWriter;
+import search.misc.QueryStats;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes every query that takes longer than a threshold to a log file, along with how
+ * long each stage of answering it took.
+ *
+ * Each entry is one line of JSON, holding the time the query finished, the endpoint it
+ * came through, its words (after tokenizing, so the same query is always logged the same
+ * way), the number of results asked for, whether it came from the cache, whether it was
+ * given up on (because it ran out of time, either waiting for its turn or searching), the
+ * number of documents scored, the nanoseconds spent on each stage and in total, and the
+ * name of the thread that answered it.
+ *
+ * Logging a query only puts it on a bounded queue: a background thread formats and
+ * writes the entries, so the query being logged never waits on the disk. If the queue is
+ * full, the entry is dropped (and counted) rather than slowing the query down further.
+ *
+ * Once the file grows past a size limit, it is renamed to 'name.1' (and 'name.1' to
+ * 'name.2', and so on), keeping at most a fixed number of old files, and a new file is
+ * started.
+ */
+public class SlowQueryLog {
+    private static final int QUEUE_CAPACITY = 1024;
+
+    // Put on the queue by 'close', to tell the writer thread there is nothing more to come.
+    private static final Entry END_OF_LOG = new Entry(0, null, null, 0, null, 0, false, null);
+
+    private final Path file;
+    private final long thresholdNanos;
+    private final long maxFileBytes;
+    private final int maxOldFiles;
+
+    private final BlockingQueue<Entry> queue;
+    private final Thread writerThread;
+    private final AtomicLong logged;
+    private final AtomicLong dropped;
+
+    // Only touched by the writer thread.
+    private Writer out;
+    private long fileBytes;
+
+    // Set by 'close', so nothing more is put on the queue after END_OF_LOG.
+    private volatile boolean closing;
+
+    /**
+     * Creates a log writing queries that take at least 'thresholdMillis' to the given file,
+     * and starts the thread that writes them.
+     *
+     * @throws IllegalArgumentException if thresholdMillis < 0, maxFileBytes < 1 or
+     *                                  maxOldFiles < 0
+     */
+    public SlowQueryLog(Path file, long thresholdMillis, long maxFileBytes, int maxOldFiles) {
+        if (thresholdMillis < 0 || maxFileBytes < 1 || maxOldFiles < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.file = file;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.maxFileBytes = maxFileBytes;
+        this.maxOldFiles = maxOldFiles;
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.logged = new AtomicLong(0);
+        this.dropped = new AtomicLong(0);
+        this.out = null;
+        this.fileBytes = 0;
+        this.closing = false;
+
+        this.writerThread = new Thread(this::writeEntries, "slow-query-log");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Logs the given query if it took at least the threshold, and returns whether it did.
+     * Returns straight away: the entry is written in the background.
+     *
+     * @param endpoint    the path the query was made through
+     * @param query       the query's words
+     * @param numResults  the number of results asked for
+     * @param stats       the stats recorded while answering the query
+     * @param totalNanos  how long answering the query took from start to finish
+     */
+    public boolean log(String endpoint, IList<String> query, int numResults, QueryStats stats, long totalNanos) {
+        return this.log(endpoint, query, numResults, stats, totalNanos, false);
+    }
+
+    /**
+     * Does the same as 'log' above, for a query that may have been given up on before it
+     * finished, in which case the stats only cover the stages it got through.
+     */
+    public boolean log(String endpoint, IList<String> query, int numResults, QueryStats stats, long totalNanos,
+                       boolean timedOut) {
+        if (totalNanos < this.thresholdNanos || this.closing) {
+            return false;
+        }
+        Entry entry = new Entry(
+                System.currentTimeMillis(),
+                endpoint,
+                query,
+                numResults,
+                stats,
+                totalNanos,
+                timedOut,
+                Thread.currentThread().getName());
+        if (!this.queue.offer(entry)) {
+            this.dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of entries written to the log so far.
+     */
+    public long logged() {
+        return this.logged.get();
+    }
+
+    /**
+     * Returns the number of slow queries that were not logged because the queue was full.
+     */
+    public long dropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * Writes every entry still queued, closes the file, and stops the writer thread.
+     * Queries logged from now on are ignored.
+     */
+    public synchronized void close() throws InterruptedException {
+        if (!this.closing) {
+            this.closing = true;
+            this.queue.put(END_OF_LOG);
+        }
+        this.writerThread.join();
+    }
+
+    /**
+     * Runs on the writer thread: writes entries as they arrive, flushing whenever the
+     * queue runs dry, until the log is closed.
+     */
+    private void writeEntries() {
+        try {
+            Entry entry = this.queue.take();
+            while (entry != END_OF_LOG) {
+                this.write(entry);
+                if (this.queue.isEmpty()) {
+                    this.out.flush();
+                }
+                entry = this.queue.take();
+            }
+        } catch (IOException ex) {
+            System.err.println("ERROR: Could not write to the slow query log; no more slow queries will be logged");
+            ex.printStackTrace();
+            this.closing = true;
+        } catch (InterruptedException ex) {
+            // Nobody else knows about this thread, so nobody else should interrupt it;
+            // if someone does anyway, we stop logging.
+            this.closing = true;
+        } finally {
+            try {
+                if (this.out != null) {
+                    this.out.close();
+                }
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        StringWriter line = new StringWriter();
+        JsonWriter json = new JsonWriter(line);
+        json.beginObject()
+                .name("time").value(Instant.ofEpochMilli(entry.timeMillis).toString())
+                .name("endpoint").value(entry.endpoint)
+                .name("query").value(String.join(" ", entry.query))
+                .name("num_results").value(entry.numResults)
+                .name("cached").value(!entry.timedOut && !entry.stats.wasComputed())
+                .name("timed_out").value(entry.timedOut)
+                .name("documents_scored").value(entry.stats.getDocumentsScored())
+                .name("tokenize_ns").value(entry.stats.getTokenizeNanos())
+                .name("score_ns").value(entry.stats.getScoreNanos())
+                .name("topk_ns").value(entry.stats.getTopKNanos())
+                .name("render_ns").value(entry.stats.getRenderNanos())
+                .name("total_ns").value(entry.totalNanos)
+                .name("thread").value(entry.thread)
+                .endObject();
+        line.write('\n');
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+
+        if (this.out != null && this.fileBytes + bytes.length > this.maxFileBytes && this.fileBytes > 0) {
+            this.out.close();
+            this.out = null;
+            this.roll();
+        }
+        if (this.out == null) {
+            this.out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(
+                    this.file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8));
+            this.fileBytes = Files.size(this.file);
+        }
+        this.out.write(line.toString());
+        this.fileBytes += bytes.length;
+        this.logged.incrementAndGet();
+    }
+
+    /**
+     * Shifts every old log file up by one ('name.1' becomes 'name.2', and so on), deleting
+     * the oldest, then moves the current file to 'name.1'.
+     */
+    private void roll() throws IOException {
+        if (this.maxOldFiles == 0) {
+            Files.deleteIfExists(this.file);
+            return;
+        }
+        Files.deleteIfExists(this.oldFile(this.maxOldFiles));
+        for (int i = this.maxOldFiles - 1; i >= 1; i--) {
+            if (Files.exists(this.oldFile(i))) {
+                Files.move(this.oldFile(i), this.oldFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(this.file, this.oldFile(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path oldFile(int generation) {
+        return this.file.resolveSibling(this.file.getFileName() + "." + generation);
+    }
+
+    /**
+     * Everything we log about one slow query.
+     */
+    private static class Entry {
+        private final long timeMillis;
+        private final String endpoint;
+        private final IList<String> query;
+        private final int numResults;
+        private final QueryStats stats;
+        private final long totalNanos;
+        private final boolean timedOut;
+        private final String thread;
+
+        Entry(long timeMillis, String endpoint, IList<String> query, int numResults, QueryStats stats,
+              long totalNanos, boolean timedOut, String thread) {
+            this.timeMillis = timeMillis;
+            this.endpoint = endpoint;
+            this.query = query;
+            this.numResults = numResults;
+            this.stats = stats;
+            this.totalNanos = totalNanos;
+            this.timedOut = timedOut;
+            this.thread = thread;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package search.misc;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helper methods for writing strings and arrays to binary files, and reading them back.
+ *
+ * Every value is written in big-endian order, and every string or array is preceded by
+ * its length as an int.
+ *
+ * Arrays are read back as views over a ByteBuffer (usually a memory-mapped file) rather
+ * than copied onto the heap, so reading one takes the same time no matter how long it is.
+ */
+public class BinaryIO {
+    private static final int COPY_CHUNK_SIZE = 1 << 13;
+
+    /**
+     * Writes the given string as its length in bytes followed by its UTF-8 encoding.
+     *
+     * Unlike DataOutput.writeUTF, this works for strings of any length.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by 'writeString'.
+     *
+     * @throws IOException if the stored length is negative or the input ends early
+     */
+    public static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a string written by 'writeString' from the given buffer, and moves the buffer
+     * past it.
+     *
+     * @throws IOException if the stored length is negative or the buffer ends early
+     */
+    public static String readString(ByteBuffer in) throws IOException {
+        int length = readLength(in);
+        if (length > in.remaining()) {
+            throw new IOException("Corrupt file: ended early");
+        }
+        String value = decodeString(in, in.position(), in.position() + length);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * Writes the given non-negative number using a variable-byte encoding: seven bits per
+     * byte, lowest bits first, with the high bit set on every byte except the last. Small
+     * numbers take up a single byte.
+     */
+    public static void writeVInt(DataOutput out, int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    /**
+     * Reads a number written by 'writeVInt' from the given buffer, and moves the buffer
+     * past it.
+     *
+     * @throws IOException if the buffer ends in the middle of the number
+     */
+    public static int readVInt(ByteBuffer in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        while (in.hasRemaining()) {
+            byte next = in.get();
+            if (next >= 0) {
+                return value | (next << shift);
+            }
+            value |= (next & 0x7F) << shift;
+            shift += 7;
+        }
+        throw new IOException("Corrupt file: ended early");
+    }
+
+    /**
+     * Writes the remaining bytes of the given buffer, preceded by their number. The
+     * buffer's position is left unchanged.
+     */
+    public static void writeBytes(DataOutput out, ByteBuffer values) throws IOException {
+        ByteBuffer source = values.duplicate();
+        out.writeInt(source.remaining());
+        byte[] chunk = new byte[Math.min(COPY_CHUNK_SIZE, source.remaining())];
+        while (source.hasRemaining()) {
+            int length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+
+    /**
+     * Writes the remaining ints of the given buffer, preceded by their number. The
+     * buffer's position is left unchanged.
+     */
+    public static void writeInts(DataOutput out, IntBuffer values) throws IOException {
+        out.writeInt(values.remaining());
+        for (int i = values.position(); i < values.limit(); i++) {
+            out.writeInt(values.get(i));
+        }
+    }
+
+    /**
+     * Writes the remaining doubles of the given buffer, preceded by their number. The
+     * buffer's position is left unchanged.
+     */
+    public static void writeDoubles(DataOutput out, DoubleBuffer values) throws IOException {
+        out.writeInt(values.remaining());
+        for (int i = values.position(); i < values.limit(); i++) {
+            out.writeDouble(values.get(i));
+        }
+    }
+
+    /**
+     * Reads a length written by DataOutput.writeInt, checking that it is not negative.
+     *
+     * @throws IOException if the stored length is negative
+     */
+    public static int readLength(DataInput in) throws IOException {
+        return checkLength(in.readInt());
+    }
+
+    /**
+     * Reads an int from the given buffer, checking that it is a valid length.
+     *
+     * @throws IOException if the stored length is negative or the buffer ends early
+     */
+    public static int readLength(ByteBuffer in) throws IOException {
+        if (in.remaining() < Integer.BYTES) {
+            throw new IOException("Corrupt file: ended early");
+        }
+        return checkLength(in.getInt());
+    }
+
+    /**
+     * Returns a view of the bytes written by 'writeBytes', and moves the buffer past them.
+     *
+     * @throws IOException if the stored length is negative or the buffer ends early
+     */
+    public static ByteBuffer sliceBytes(ByteBuffer in) throws IOException {
+        return slice(in, readLength(in), 1);
+    }
+
+    /**
+     * Returns a view of the ints written by 'writeInts', and moves the buffer past them.
+     *
+     * @throws IOException if the stored length is negative or the buffer ends early
+     */
+    public static IntBuffer sliceInts(ByteBuffer in) throws IOException {
+        return slice(in, readLength(in), Integer.BYTES).asIntBuffer();
+    }
+
+    /**
+     * Returns a view of the doubles written by 'writeDoubles', and moves the buffer past them.
+     *
+     * @throws IOException if the stored length is negative or the buffer ends early
+     */
+    public static DoubleBuffer sliceDoubles(ByteBuffer in) throws IOException {
+        return slice(in, readLength(in), Double.BYTES).asDoubleBuffer();
+    }
+
+    /**
+     * Returns the UTF-8 string stored in the given range of the buffer, without moving it.
+     */
+    public static String decodeString(ByteBuffer in, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer source = in.duplicate();
+        source.position(start);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer slice(ByteBuffer in, int count, int width) throws IOException {
+        long numBytes = (long) count * width;
+        if (numBytes > in.remaining()) {
+            throw new IOException("Corrupt file: ended early");
+        }
+        ByteBuffer view = in.slice();
+        view.limit((int) numBytes);
+        in.position(in.position() + (int) numBytes);
+        return view;
+    }
+
+    private static int checkLength(int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("Corrupt file: negative length " + length);
+        }
+        return length;
+    }
+}
@@ -1,7 +1,7 @@
 package search.misc;
 
 import datastructures.concrete.ChainedHashSet;
-import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.GrowableArrayList;
 import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
 
@@ -40,7 +40,7 @@ public class Bridge {
     public static class IListCollector<T> implements Collector<T, IList<T>, IList<T>> {
         @Override
         public Supplier<IList<T>> supplier() {
-            return DoubleLinkedList::new;
+            return GrowableArrayList::new;
         }
 
         @Override
@@ -51,7 +51,7 @@ public class Bridge {
         @Override
         public BinaryOperator<IList<T>> combiner() {
             return (a, b) -> {
-                IList<T> out = new DoubleLinkedList<>();
+                IList<T> out = new GrowableArrayList<>();
                 for (T i : a) {
                     out.add(i);
                 }
@@ -0,0 +1,68 @@
+package search.misc;
+
+import search.misc.exceptions.QueryTimeoutException;
+
+/**
+ * A point in time by which some work (usually a query) must be done.
+ *
+ * Long-running loops call 'check' every so often, so work that is no longer wanted stops
+ * early instead of running to completion. Deadlines are immutable, so one can be shared
+ * by every thread working on the same query.
+ */
+public final class Deadline {
+    /**
+     * A deadline that never passes.
+     */
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE, true);
+
+    // Compared against System.nanoTime, which may be negative, so we only ever look at
+    // the difference between the two.
+    private final long expiresAt;
+    private final boolean infinite;
+
+    private Deadline(long expiresAt, boolean infinite) {
+        this.expiresAt = expiresAt;
+        this.infinite = infinite;
+    }
+
+    /**
+     * Returns a deadline the given number of nanoseconds from now.
+     *
+     * @throws IllegalArgumentException if nanos < 0
+     */
+    public static Deadline after(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Timeout must not be negative");
+        }
+        return new Deadline(System.nanoTime() + nanos, false);
+    }
+
+    /**
+     * Returns the number of nanoseconds left before this deadline passes, or 0 if it
+     * already has. A deadline that never passes always has Long.MAX_VALUE left.
+     */
+    public long remainingNanos() {
+        if (this.infinite) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, this.expiresAt - System.nanoTime());
+    }
+
+    /**
+     * Returns whether this deadline has passed.
+     */
+    public boolean hasPassed() {
+        return !this.infinite && this.expiresAt - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Does nothing if this deadline has not passed yet.
+     *
+     * @throws QueryTimeoutException if it has
+     */
+    public void check() {
+        if (this.hasPassed()) {
+            throw new QueryTimeoutException("Deadline passed before the query finished");
+        }
+    }
+}
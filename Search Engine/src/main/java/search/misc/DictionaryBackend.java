@@ -0,0 +1,46 @@
+package search.misc;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.OpenAddressingDictionary;
+import datastructures.interfaces.IDictionary;
+
+/**
+ * The dictionary implementations the analyzers and index can build their dictionaries
+ * with.
+ *
+ * Every dictionary they create comes from 'selected()', which is OPEN_ADDRESSING unless
+ * the system property named by PROPERTY names a different backend (for example,
+ * '-Dsearch.dictionary=CHAINED'). Results are the same either way; only speed and
+ * memory use differ.
+ */
+public enum DictionaryBackend {
+    CHAINED {
+        @Override
+        public <K, V> IDictionary<K, V> newDictionary() {
+            return new ChainedHashDictionary<>();
+        }
+    },
+    OPEN_ADDRESSING {
+        @Override
+        public <K, V> IDictionary<K, V> newDictionary() {
+            return new OpenAddressingDictionary<>();
+        }
+    };
+
+    public static final String PROPERTY = "search.dictionary";
+
+    private static final DictionaryBackend SELECTED =
+            DictionaryBackend.valueOf(System.getProperty(PROPERTY, OPEN_ADDRESSING.name()));
+
+    /**
+     * Returns a new, empty dictionary.
+     */
+    public abstract <K, V> IDictionary<K, V> newDictionary();
+
+    /**
+     * Returns the backend chosen when the program started.
+     */
+    public static DictionaryBackend selected() {
+        return SELECTED;
+    }
+}
@@ -0,0 +1,205 @@
+package search.misc;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a JSON document piece by piece to a writer, without building any tree of values
+ * in memory first.
+ *
+ * Callers open and close objects and arrays, and write names and values, in the same order
+ * they appear in the document; the writer takes care of commas, colons and escaping
+ * strings. It does not check that the calls form a valid document: that is up to the
+ * caller.
+ *
+ * Nothing is flushed or closed: wrap the output in a BufferedWriter if it is slow to write
+ * to in small pieces.
+ */
+public class JsonWriter {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final int MAX_DEPTH = 64;
+
+    private final Writer out;
+
+    // Whether the object or array at each level of nesting already holds a value, so
+    // we know whether the next one needs a comma in front of it.
+    private final boolean[] hasValue;
+    private int depth;
+
+    // Set by 'name', so the value that follows goes after the colon instead of a comma.
+    private boolean afterName;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+        this.hasValue = new boolean[MAX_DEPTH];
+        this.depth = 0;
+        this.afterName = false;
+    }
+
+    /**
+     * Opens a new object.
+     *
+     * @throws IllegalStateException if objects and arrays are nested too deeply
+     */
+    public JsonWriter beginObject() throws IOException {
+        return this.open('{');
+    }
+
+    /**
+     * Closes the innermost object.
+     */
+    public JsonWriter endObject() throws IOException {
+        return this.close('}');
+    }
+
+    /**
+     * Opens a new array.
+     *
+     * @throws IllegalStateException if objects and arrays are nested too deeply
+     */
+    public JsonWriter beginArray() throws IOException {
+        return this.open('[');
+    }
+
+    /**
+     * Closes the innermost array.
+     */
+    public JsonWriter endArray() throws IOException {
+        return this.close(']');
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     */
+    public JsonWriter name(String name) throws IOException {
+        this.beforeValue();
+        this.writeString(name);
+        this.out.write(':');
+        this.afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes the given string, or null if it is null.
+     */
+    public JsonWriter value(String value) throws IOException {
+        this.beforeValue();
+        if (value == null) {
+            this.out.write("null");
+        } else {
+            this.writeString(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the given number. JSON has no way of writing NaN or infinity, so those are
+     * written as null.
+     */
+    public JsonWriter value(double value) throws IOException {
+        this.beforeValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            this.out.write("null");
+        } else {
+            this.out.write(Double.toString(value));
+        }
+        return this;
+    }
+
+    /**
+     * Writes the given boolean.
+     */
+    public JsonWriter value(boolean value) throws IOException {
+        this.beforeValue();
+        this.out.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes the given number.
+     */
+    public JsonWriter value(long value) throws IOException {
+        this.beforeValue();
+        this.out.write(Long.toString(value));
+        return this;
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        if (this.depth == MAX_DEPTH) {
+            throw new IllegalStateException("JSON is nested too deeply");
+        }
+        this.beforeValue();
+        this.out.write(bracket);
+        this.hasValue[this.depth] = false;
+        this.depth++;
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        this.depth--;
+        this.out.write(bracket);
+        return this;
+    }
+
+    /**
+     * Writes the comma separating the next value from the one before it, if there is one.
+     */
+    private void beforeValue() throws IOException {
+        if (this.afterName) {
+            this.afterName = false;
+            return;
+        }
+        if (this.depth > 0) {
+            if (this.hasValue[this.depth - 1]) {
+                this.out.write(',');
+            }
+            this.hasValue[this.depth - 1] = true;
+        }
+    }
+
+    /**
+     * Writes the given string in quotes, escaping every character JSON does not allow
+     * inside a string as is. Runs of characters that need no escaping are written in
+     * one go.
+     */
+    private void writeString(String value) throws IOException {
+        this.out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escape;
+            if (c == '"') {
+                escape = "\\\"";
+            } else if (c == '\\') {
+                escape = "\\\\";
+            } else if (c == '\n') {
+                escape = "\\n";
+            } else if (c == '\r') {
+                escape = "\\r";
+            } else if (c == '\t') {
+                escape = "\\t";
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                // U+2028 and U+2029 are valid in JSON, but not in JavaScript source, so
+                // we escape them too in case the output ends up inside a script.
+                escape = null;
+            } else {
+                continue;
+            }
+
+            this.out.write(value, start, i - start);
+            if (escape != null) {
+                this.out.write(escape);
+            } else {
+                this.out.write("\\u");
+                this.out.write(HEX_DIGITS[(c >> 12) & 0xF]);
+                this.out.write(HEX_DIGITS[(c >> 8) & 0xF]);
+                this.out.write(HEX_DIGITS[(c >> 4) & 0xF]);
+                this.out.write(HEX_DIGITS[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        this.out.write(value, start, value.length() - start);
+        this.out.write('"');
+    }
+}
@@ -0,0 +1,124 @@
+package search.misc;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Helper methods for splitting work over a range of integers (usually document or
+ * term ids) into pieces that run in parallel on a ForkJoinPool.
+ *
+ * Every method accepts a null pool, in which case the whole range is handled as a
+ * single piece on the calling thread.
+ */
+public class ParallelRanges {
+    // How many pieces we aim to give each thread: a few more than one, so threads
+    // that finish early can steal work from the others.
+    private static final int PIECES_PER_THREAD = 4;
+
+    @FunctionalInterface
+    public interface RangeAction {
+        void apply(int start, int end);
+    }
+
+    @FunctionalInterface
+    public interface RangeFunction<T> {
+        T apply(int start, int end);
+    }
+
+    /**
+     * Calls the given action on disjoint pieces of the range [start, end) that together
+     * cover the entire range, and waits until every piece is done. No piece will be
+     * smaller than 'minPieceSize' unless the whole range is.
+     */
+    public static void forEach(ForkJoinPool pool, int start, int end, int minPieceSize, RangeAction action) {
+        if (pool == null) {
+            action.apply(start, end);
+        } else {
+            int pieceSize = ParallelRanges.pieceSize(pool, start, end, minPieceSize);
+            pool.invoke(new ForEachTask(start, end, pieceSize, action));
+        }
+    }
+
+    /**
+     * Calls the given function on disjoint pieces of the range [start, end) that together
+     * cover the entire range, and combines the results using the given operator. No piece
+     * will be smaller than 'minPieceSize' unless the whole range is.
+     *
+     * The operator must be associative. Results from neighbouring pieces are always
+     * combined in order, left before right.
+     */
+    public static <T> T reduce(ForkJoinPool pool, int start, int end, int minPieceSize,
+                               RangeFunction<T> function, BinaryOperator<T> combiner) {
+        if (pool == null) {
+            return function.apply(start, end);
+        } else {
+            int pieceSize = ParallelRanges.pieceSize(pool, start, end, minPieceSize);
+            return pool.invoke(new ReduceTask<>(start, end, pieceSize, function, combiner));
+        }
+    }
+
+    private static int pieceSize(ForkJoinPool pool, int start, int end, int minPieceSize) {
+        int pieces = pool.getParallelism() * PIECES_PER_THREAD;
+        return Math.max(Math.max(1, minPieceSize), (end - start + pieces - 1) / pieces);
+    }
+
+    private static class ForEachTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private int start;
+        private int end;
+        private int pieceSize;
+        private RangeAction action;
+
+        public ForEachTask(int start, int end, int pieceSize, RangeAction action) {
+            this.start = start;
+            this.end = end;
+            this.pieceSize = pieceSize;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.end - this.start <= this.pieceSize) {
+                this.action.apply(this.start, this.end);
+            } else {
+                int middle = (this.start + this.end) >>> 1;
+                invokeAll(new ForEachTask(this.start, middle, this.pieceSize, this.action),
+                          new ForEachTask(middle, this.end, this.pieceSize, this.action));
+            }
+        }
+    }
+
+    private static class ReduceTask<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private int start;
+        private int end;
+        private int pieceSize;
+        private RangeFunction<T> function;
+        private BinaryOperator<T> combiner;
+
+        public ReduceTask(int start, int end, int pieceSize, RangeFunction<T> function, BinaryOperator<T> combiner) {
+            this.start = start;
+            this.end = end;
+            this.pieceSize = pieceSize;
+            this.function = function;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected T compute() {
+            if (this.end - this.start <= this.pieceSize) {
+                return this.function.apply(this.start, this.end);
+            }
+            int middle = (this.start + this.end) >>> 1;
+            ReduceTask<T> left = new ReduceTask<>(this.start, middle, this.pieceSize, this.function, this.combiner);
+            ReduceTask<T> right = new ReduceTask<>(middle, this.end, this.pieceSize, this.function, this.combiner);
+            left.fork();
+            T rightResult = right.compute();
+            return this.combiner.apply(left.join(), rightResult);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package search.misc;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What happened while answering a single query: how long each stage took, how many
+ * documents were scored, and whether the results came from the cache.
+ *
+ * One of these is created per query and handed down to every part of the search that
+ * has something to report. Times are added up, so a stage split across several places
+ * is reported as a whole. The number of documents scored may be added to by several
+ * threads at once (one per shard being searched); everything else is updated by the thread
+ * answering the query.
+ */
+public class QueryStats {
+    private long tokenizeNanos;
+    private long scoreNanos;
+    private long topKNanos;
+    private long renderNanos;
+    private final LongAdder documentsScored;
+    private boolean computed;
+
+    public QueryStats() {
+        this.documentsScored = new LongAdder();
+        this.computed = false;
+    }
+
+    /**
+     * Returns the time spent splitting the query into words.
+     */
+    public long getTokenizeNanos() {
+        return this.tokenizeNanos;
+    }
+
+    public void addTokenizeNanos(long nanos) {
+        this.tokenizeNanos += nanos;
+    }
+
+    /**
+     * Returns the time spent finding and scoring the documents that might make it into
+     * the top k, across every shard.
+     */
+    public long getScoreNanos() {
+        return this.scoreNanos;
+    }
+
+    public void addScoreNanos(long nanos) {
+        this.scoreNanos += nanos;
+    }
+
+    /**
+     * Returns the time spent putting the top k documents in order and turning them into
+     * results.
+     */
+    public long getTopKNanos() {
+        return this.topKNanos;
+    }
+
+    public void addTopKNanos(long nanos) {
+        this.topKNanos += nanos;
+    }
+
+    /**
+     * Returns the time spent writing the results out as a web page (or as JSON).
+     */
+    public long getRenderNanos() {
+        return this.renderNanos;
+    }
+
+    public void addRenderNanos(long nanos) {
+        this.renderNanos += nanos;
+    }
+
+    /**
+     * Returns the number of documents whose score was computed.
+     */
+    public long getDocumentsScored() {
+        return this.documentsScored.sum();
+    }
+
+    public void addDocumentsScored(long count) {
+        this.documentsScored.add(count);
+    }
+
+    /**
+     * Returns whether the results had to be computed, rather than coming from the cache.
+     */
+    public boolean wasComputed() {
+        return this.computed;
+    }
+
+    public void markComputed() {
+        this.computed = true;
+    }
+}
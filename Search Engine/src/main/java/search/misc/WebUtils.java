@@ -1,6 +1,6 @@
 package search.misc;
 
-import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.GrowableArrayList;
 import datastructures.interfaces.IList;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
@@ -12,7 +12,7 @@ import java.util.Optional;
 
 public class WebUtils {
     public static IList<URI> extractLinks(URI rootUri, Document doc) {
-        IList<URI> out = new DoubleLinkedList<>();
+        IList<URI> out = new GrowableArrayList<>();
         Elements links = doc.select("a[href]");
         for (Element link : links) {
             String rawLink = link.attr("href");
@@ -1,17 +1,116 @@
 package search.misc;
 
-import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.GrowableArrayList;
 import datastructures.interfaces.IList;
 
+/**
+ * Splits text into lowercase words with all ASCII punctuation removed.
+ *
+ * The words are exactly the ones produced by lowercasing the whole text, splitting it on
+ * runs of whitespace (as matched by the regex '\s'), removing everything matched by
+ * '\p{Punct}' from each piece, and dropping the pieces left empty. Rather than running
+ * those three regex passes, we make a single pass over the text, lowercasing and
+ * dropping punctuation as we go.
+ */
 public class WordTokenizer {
-    public static IList<String> extract(String input) {
-        IList<String> out = new DoubleLinkedList<>();
-        for (String word : input.toLowerCase().split("\\s+")) {
-            word = word.replaceAll("\\p{Punct}", "");
-            if (!word.isEmpty()) {
-                out.add(word);
+    // The ASCII characters matched by the regex '\s'.
+    private static final String WHITESPACE = " \t\n\u000B\f\r";
+
+    // The ASCII characters matched by the regex '\p{Punct}'.
+    private static final String PUNCTUATION = "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
+
+    private static final boolean[] IS_WHITESPACE = asciiTable(WHITESPACE);
+    private static final boolean[] IS_PUNCTUATION = asciiTable(PUNCTUATION);
+
+    private static final int INITIAL_BUFFER_SIZE = 64;
+
+    @FunctionalInterface
+    public interface TokenConsumer {
+        /**
+         * Accepts the word made of the first 'length' characters of the given buffer.
+         *
+         * The buffer is reused for the next word, so it must not be kept.
+         */
+        void accept(char[] buffer, int length);
+    }
+
+    /**
+     * Returns every word in the given text, in order.
+     */
+    public static IList<String> extract(CharSequence input) {
+        IList<String> out = new GrowableArrayList<>();
+        forEachToken(input, (buffer, length) -> out.add(new String(buffer, 0, length)));
+        return out;
+    }
+
+    /**
+     * Passes every word in the given text, in order, to the given consumer.
+     */
+    public static void forEachToken(CharSequence input, TokenConsumer consumer) {
+        char[] buffer = new char[Math.min(input.length(), INITIAL_BUFFER_SIZE)];
+        int length = input.length();
+        int start = 0;
+        while (start < length) {
+            // Skip to the start of the next piece, then find its end. We note whether it
+            // is pure ASCII along the way.
+            while (start < length && isWhitespace(input.charAt(start))) {
+                start++;
+            }
+            int end = start;
+            boolean ascii = true;
+            while (end < length && !isWhitespace(input.charAt(end))) {
+                ascii &= input.charAt(end) < 128;
+                end++;
+            }
+            if (end - start > buffer.length) {
+                buffer = new char[Math.max(end - start, 2 * buffer.length)];
             }
+
+            int size;
+            if (ascii) {
+                size = 0;
+                for (int i = start; i < end; i++) {
+                    char c = input.charAt(i);
+                    if (!IS_PUNCTUATION[c]) {
+                        buffer[size] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+                        size++;
+                    }
+                }
+            } else {
+                // Lowercasing outside ASCII can depend on the neighbouring characters, and
+                // can even change the number of characters, so we leave it to toLowerCase.
+                // No whitespace is case-sensitive, so lowercasing just this piece gives the
+                // same result as lowercasing the whole text.
+                String lower = input.subSequence(start, end).toString().toLowerCase();
+                if (lower.length() > buffer.length) {
+                    buffer = new char[lower.length()];
+                }
+                size = 0;
+                for (int i = 0; i < lower.length(); i++) {
+                    char c = lower.charAt(i);
+                    if (c >= 128 || !IS_PUNCTUATION[c]) {
+                        buffer[size] = c;
+                        size++;
+                    }
+                }
+            }
+
+            if (size > 0) {
+                consumer.accept(buffer, size);
+            }
+            start = end;
         }
-        return out;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c < 128 && IS_WHITESPACE[c];
+    }
+
+    private static boolean[] asciiTable(String chars) {
+        boolean[] table = new boolean[128];
+        for (int i = 0; i < chars.length(); i++) {
+            table[chars.charAt(i)] = true;
+        }
+        return table;
     }
 }
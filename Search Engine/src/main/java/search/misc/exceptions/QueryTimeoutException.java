@@ -0,0 +1,19 @@
+package search.misc.exceptions;
+
+public class QueryTimeoutException extends RuntimeException {
+    public QueryTimeoutException() {
+        super();
+    }
+
+    public QueryTimeoutException(String message) {
+        super(message);
+    }
+
+    public QueryTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public QueryTimeoutException(Throwable cause) {
+        super(cause);
+    }
+}
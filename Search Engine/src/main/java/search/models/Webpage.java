@@ -2,28 +2,31 @@ package search.models;
 
 import com.chimbori.crux.articles.Article;
 import com.chimbori.crux.articles.ArticleExtractor;
-import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.GrowableArrayList;
 import datastructures.concrete.dictionaries.ChainedHashDictionary;
 import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import search.misc.BinaryIO;
 import search.misc.UnbufferedReader;
 import search.misc.WebUtils;
 import search.misc.WordTokenizer;
 import search.misc.exceptions.DataExtractionException;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PushbackInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.StringTokenizer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.function.Function;
 
 /**
  * This class represents a single webpage.
@@ -33,6 +36,12 @@ import java.util.StringTokenizer;
 public class Webpage {
     private static final int MAX_DESCRIPTION_LEN = 200;
 
+    // The first four bytes of every cache file ("WPGC"), followed by the version of
+    // the format it was written in. Cache files that don't start with both (including
+    // the plain-text caches we used to write) are thrown away and regenerated.
+    private static final int CACHE_MAGIC = 0x57504743;
+    private static final int CACHE_FORMAT_VERSION = 2;
+
     // This field is the 'unique key' for the webpage:
     // every Webpage object is guaranteed to have a unique URI.
     private URI pageUri;
@@ -104,12 +113,14 @@ public class Webpage {
         URI cacheURI = Webpage.getCacheURI(localUri);
         File cacheFile = new File(cacheURI);
         if (cacheFile.exists()) {
-            return Webpage.loadFromCache(cacheFile);
-        } else {
-            Webpage out = Webpage.loadOriginal(localUri);
-            Webpage.saveToCache(out, cacheFile);
-            return out;
+            Webpage cached = Webpage.loadFromCache(cacheFile);
+            if (cached != null) {
+                return cached;
+            }
         }
+        Webpage out = Webpage.loadOriginal(localUri);
+        Webpage.saveToCache(out, cacheFile);
+        return out;
     }
 
     public static Webpage loadOriginal(URI localUri) {
@@ -136,63 +147,119 @@ public class Webpage {
     }
 
     private static void saveToCache(Webpage page, File cache) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(cache))) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cache)))) {
             WebpageSummary summary = page.getSummary();
 
-            // Line 1: page URI
-            writer.write(page.pageUri.toString() + "\n");
-
-            // Line 2: title
-            writer.write(summary.getTitle() + "\n");
-
-            // Line 3: blurb
-            writer.write(summary.getBlurb() + "\n");
+            // Header: magic number and format version
+            out.writeInt(CACHE_MAGIC);
+            out.writeInt(CACHE_FORMAT_VERSION);
 
-            // Line 4: words
-            for (String word : page.words) {
-                writer.write(word);
-                writer.write(' ');
-            }
-            writer.write('\n');
+            // Page URI, title and blurb
+            BinaryIO.writeString(out, page.pageUri.toString());
+            BinaryIO.writeString(out, summary.getTitle());
+            BinaryIO.writeString(out, summary.getBlurb());
 
-            // Remaining lines: links
-            for (URI link : page.links) {
-                writer.write(link.toString());
-                writer.write('\n');
-            }
+            // Words, then links
+            Webpage.writeTable(out, page.words);
+            Webpage.writeTable(out, page.links);
         } catch (IOException ex) {
             throw new RuntimeException("Could not create cache", ex);
         }
     }
 
-    private static Webpage loadFromCache(File cache) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(cache))) {
-            // Line 1: Page URI
-            URI pageUri = URI.create(reader.readLine().trim());
+    /**
+     * Writes every distinct item in the list once, followed by the list itself as a
+     * sequence of (variable-byte encoded) indices into those distinct items.
+     */
+    private static <T> void writeTable(DataOutput out, IList<T> items) throws IOException {
+        IDictionary<T, Integer> ids = new ChainedHashDictionary<>();
+        IList<T> distinct = new GrowableArrayList<>();
+        int[] sequence = new int[items.size()];
+        int i = 0;
+        for (T item : items) {
+            Integer id = ids.getOrDefault(item, null);
+            if (id == null) {
+                id = distinct.size();
+                ids.put(item, id);
+                distinct.add(item);
+            }
+            sequence[i] = id;
+            i++;
+        }
 
-            // Line 2: title
-            String title = reader.readLine().trim();
+        out.writeInt(distinct.size());
+        for (T item : distinct) {
+            BinaryIO.writeString(out, item.toString());
+        }
+        out.writeInt(sequence.length);
+        for (int id : sequence) {
+            BinaryIO.writeVInt(out, id);
+        }
+    }
 
-            // Line 3: blurb
-            String blurb = reader.readLine().trim();
+    /**
+     * Returns the webpage stored in the given cache file, or null if the file was written
+     * in an older format or is corrupt.
+     */
+    private static Webpage loadFromCache(File cache) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(cache.toPath());
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not load cache", ex);
+        }
 
-            // Line 4: words
-            IList<String> words = new DoubleLinkedList<>();
-            StringTokenizer tokenizer = new StringTokenizer(reader.readLine().trim(), " ");
-            while (tokenizer.hasMoreTokens()) {
-                words.add(tokenizer.nextToken());
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (in.remaining() < 2 * Integer.BYTES || in.getInt() != CACHE_MAGIC || in.getInt() != CACHE_FORMAT_VERSION) {
+            return null;
+        }
+        try {
+            URI pageUri = URI.create(BinaryIO.readString(in));
+            String title = BinaryIO.readString(in);
+            String blurb = BinaryIO.readString(in);
+            IList<String> words = Webpage.readTable(in, word -> word);
+            IList<URI> links = Webpage.readTable(in, URI::create);
+            if (in.hasRemaining()) {
+                return null;
             }
+            return new Webpage(pageUri, links, words, title, blurb);
+        } catch (IOException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
 
-            // Rest of lines: links
-            IList<URI> links = new DoubleLinkedList<>();
-            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-                links.add(URI.create(line));
-            }
+    /**
+     * Reads a list written by 'writeTable', using the given function to convert each
+     * distinct item back from a string. Equal items in the list share the same object.
+     *
+     * @throws IOException if the buffer ends early or does not contain a valid table
+     */
+    private static <T> IList<T> readTable(ByteBuffer in, Function<String, T> parse) throws IOException {
+        int numDistinct = BinaryIO.readLength(in);
+        // Every distinct item starts with a four byte length, so a corrupt count cannot
+        // make us allocate more than the rest of the buffer could fill.
+        if (numDistinct > in.remaining() / Integer.BYTES) {
+            throw new IOException("Corrupt cache: too many distinct items");
+        }
+        Object[] distinct = new Object[numDistinct];
+        for (int i = 0; i < distinct.length; i++) {
+            distinct[i] = parse.apply(BinaryIO.readString(in));
+        }
 
-            return new Webpage(pageUri, links, words, title, blurb);
-        } catch (IOException ex) {
-            throw new RuntimeException("Could not load cache", ex);
+        int size = BinaryIO.readLength(in);
+        // Every id takes at least one byte, so a corrupt size cannot make us allocate
+        // more than the rest of the buffer could fill.
+        IList<T> items = new GrowableArrayList<>(Math.min(size, in.remaining()));
+        for (int i = 0; i < size; i++) {
+            int id = BinaryIO.readVInt(in);
+            if (id < 0 || id >= distinct.length) {
+                throw new IOException("Corrupt cache: item id out of range");
+            }
+            @SuppressWarnings("unchecked")
+            T item = (T) distinct[id];
+            items.add(item);
         }
+        return items;
     }
 
     private static URI getCacheURI(URI localUri) {
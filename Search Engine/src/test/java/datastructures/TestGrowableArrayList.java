@@ -0,0 +1,138 @@
+package datastructures;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.GrowableArrayList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import misc.exceptions.EmptyContainerException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+public class TestGrowableArrayList extends BaseTest {
+    private <T> void assertSameList(List<T> expected, IList<T> actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<T> actualIter = actual.iterator();
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+            assertEquals(expected.get(i), actualIter.next());
+        }
+        assertFalse(actualIter.hasNext());
+    }
+
+    @Test(timeout=SECOND)
+    public void testAddGetAndSet() {
+        IList<String> list = new GrowableArrayList<>(0);
+        list.add("a");
+        list.add(null);
+        list.add("c");
+        list.set(1, "b");
+
+        assertEquals(3, list.size());
+        assertEquals("a", list.get(0));
+        assertEquals("b", list.get(1));
+        assertEquals("c", list.get(2));
+        assertEquals(2, list.indexOf("c"));
+        assertTrue(list.contains("b"));
+        assertFalse(list.contains("d"));
+        assertEquals(-1, list.indexOf(null));
+    }
+
+    @Test(timeout=SECOND)
+    public void testOutOfBoundsThrowsException() {
+        IList<String> list = new GrowableArrayList<>();
+        list.add("a");
+        int[] badIndices = {-1, 1, 100};
+        for (int index : badIndices) {
+            try {
+                list.get(index);
+                fail("Expected IndexOutOfBoundsException");
+            } catch (IndexOutOfBoundsException ex) {
+                // Do nothing: this is ok
+            }
+            try {
+                list.delete(index);
+                fail("Expected IndexOutOfBoundsException");
+            } catch (IndexOutOfBoundsException ex) {
+                // Do nothing: this is ok
+            }
+        }
+        try {
+            list.insert(2, "b");
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // Do nothing: this is ok
+        }
+        list.insert(1, "b");
+        assertEquals("b", list.get(1));
+    }
+
+    @Test(timeout=SECOND)
+    public void testRemoveFromEmptyThrowsException() {
+        IList<String> list = new GrowableArrayList<>();
+        list.add("a");
+        assertEquals("a", list.remove());
+        assertTrue(list.isEmpty());
+        try {
+            list.remove();
+            fail("Expected EmptyContainerException");
+        } catch (EmptyContainerException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testIteratorEndThrowsException() {
+        Iterator<String> iter = new GrowableArrayList<String>().iterator();
+        assertFalse(iter.hasNext());
+        try {
+            iter.next();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesJavaList() {
+        Random random = new Random(15);
+        List<Integer> expected = new ArrayList<>();
+        IList<Integer> actual = new GrowableArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int operation = random.nextInt(5);
+            if (operation <= 1 || expected.isEmpty()) {
+                expected.add(i);
+                actual.add(i);
+            } else if (operation == 2) {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, i);
+                actual.insert(index, i);
+            } else if (operation == 3) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), actual.delete(index));
+            } else {
+                assertEquals(expected.remove(expected.size() - 1), actual.remove());
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+        this.assertSameList(expected, actual);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testManyAdds() {
+        IList<Integer> list = new GrowableArrayList<>();
+        for (int i = 0; i < 1000000; i++) {
+            list.add(i);
+        }
+        for (int i = 0; i < 1000000; i += 997) {
+            assertEquals(i, list.get(i));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package datastructures.dictionaries;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.IntDoubleDictionary;
+import datastructures.interfaces.IDictionary;
+import misc.BaseTest;
+import misc.exceptions.NoSuchKeyException;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestIntDoubleDictionary extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testPutAndGet() {
+        IntDoubleDictionary dict = new IntDoubleDictionary();
+        dict.putDouble(0, 1.5);
+        dict.put(-7, 2.5);
+        dict.putDouble(Integer.MIN_VALUE, 3.5);
+        dict.putDouble(0, 4.5);
+
+        assertEquals(3, dict.size());
+        assertEquals(4.5, dict.getDouble(0), 0.0);
+        assertEquals(2.5, dict.get(-7), 0.0);
+        assertEquals(3.5, dict.getDouble(Integer.MIN_VALUE), 0.0);
+        assertEquals(-1.0, dict.getDouble(1, -1.0), 0.0);
+        assertTrue(dict.containsKey(0));
+        assertFalse(dict.containsKey(1));
+    }
+
+    @Test(timeout=SECOND)
+    public void testGetMissingKeyThrowsException() {
+        IntDoubleDictionary dict = new IntDoubleDictionary();
+        dict.putDouble(1, 1.0);
+        try {
+            dict.getDouble(2);
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // Do nothing: this is ok
+        }
+        try {
+            dict.removeDouble(2);
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testAddTo() {
+        IntDoubleDictionary dict = new IntDoubleDictionary();
+        assertEquals(2.0, dict.addTo(3, 2.0), 0.0);
+        assertEquals(5.0, dict.addTo(3, 3.0), 0.0);
+        assertEquals(-1.0, dict.addTo(4, -1.0), 0.0);
+        assertEquals(2, dict.size());
+        assertEquals(5.0, dict.getDouble(3), 0.0);
+    }
+
+    @Test(timeout=SECOND)
+    public void testCursorVisitsEveryEntry() {
+        IntDoubleDictionary dict = new IntDoubleDictionary();
+        for (int i = 0; i < 1000; i++) {
+            dict.putDouble(i, i);
+        }
+        boolean[] seen = new boolean[1000];
+        for (IntDoubleDictionary.Cursor cursor = dict.cursor(); cursor.next();) {
+            int key = cursor.key();
+            assertFalse(seen[key]);
+            seen[key] = true;
+            assertEquals(key, cursor.value(), 0.0);
+            cursor.setValue(2.0 * key);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(seen[i]);
+            assertEquals(2.0 * i, dict.getDouble(i), 0.0);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesChainedHashDictionary() {
+        // Multiples of a large power of two, so many keys share a home slot.
+        Random random = new Random(14);
+        IDictionary<Integer, Double> expected = new ChainedHashDictionary<>();
+        IntDoubleDictionary actual = new IntDoubleDictionary();
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(500) << 20;
+            int operation = random.nextInt(3);
+            if (operation == 0) {
+                expected.put(key, expected.getOrDefault(key, 0.0) + i);
+                actual.addTo(key, i);
+            } else if (operation == 1 && expected.containsKey(key)) {
+                assertEquals(expected.remove(key), actual.removeDouble(key), 0.0);
+            } else {
+                assertEquals(expected.getOrDefault(key, -1.0), actual.getDouble(key, -1.0), 0.0);
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+
+        int count = 0;
+        for (KVPair<Integer, Double> pair : actual) {
+            assertEquals(expected.get(pair.getKey()), pair.getValue());
+            count++;
+        }
+        assertEquals(expected.size(), count);
+    }
+}
@@ -0,0 +1,111 @@
+package datastructures.dictionaries;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.ObjectDoubleDictionary;
+import datastructures.interfaces.IDictionary;
+import misc.BaseTest;
+import misc.exceptions.NoSuchKeyException;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestObjectDoubleDictionary extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testPutAndGet() {
+        ObjectDoubleDictionary<String> dict = new ObjectDoubleDictionary<>();
+        dict.putDouble("a", 1.5);
+        dict.put("b", 2.5);
+        dict.putDouble(null, 3.5);
+        dict.putDouble("a", 4.5);
+
+        assertEquals(3, dict.size());
+        assertEquals(4.5, dict.getDouble("a"), 0.0);
+        assertEquals(2.5, dict.get("b"), 0.0);
+        assertEquals(3.5, dict.getDouble(null), 0.0);
+        assertEquals(-1.0, dict.getDouble("c", -1.0), 0.0);
+        assertTrue(dict.getOrDefault("c", null) == null);
+        assertTrue(dict.containsKey(null));
+        assertFalse(dict.containsKey("c"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testGetMissingKeyThrowsException() {
+        ObjectDoubleDictionary<String> dict = new ObjectDoubleDictionary<>();
+        dict.putDouble("a", 1.0);
+        try {
+            dict.getDouble("b");
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // Do nothing: this is ok
+        }
+        try {
+            dict.remove("b");
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testAddTo() {
+        ObjectDoubleDictionary<String> dict = new ObjectDoubleDictionary<>();
+        assertEquals(2.0, dict.addTo("a", 2.0), 0.0);
+        assertEquals(5.0, dict.addTo("a", 3.0), 0.0);
+        assertEquals(-1.0, dict.addTo("b", -1.0), 0.0);
+        assertEquals(2, dict.size());
+        assertEquals(5.0, dict.getDouble("a"), 0.0);
+    }
+
+    @Test(timeout=SECOND)
+    public void testCursorVisitsEveryEntry() {
+        ObjectDoubleDictionary<Integer> dict = new ObjectDoubleDictionary<>();
+        for (int i = 0; i < 1000; i++) {
+            dict.putDouble(i, i);
+        }
+        boolean[] seen = new boolean[1000];
+        for (ObjectDoubleDictionary.Cursor<Integer> cursor = dict.cursor(); cursor.next();) {
+            int key = cursor.key();
+            assertFalse(seen[key]);
+            seen[key] = true;
+            assertEquals(key, cursor.value(), 0.0);
+            cursor.setValue(2.0 * key);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(seen[i]);
+            assertEquals(2.0 * i, dict.getDouble(i), 0.0);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesChainedHashDictionary() {
+        Random random = new Random(13);
+        IDictionary<Wrapper<Integer>, Double> expected = new ChainedHashDictionary<>();
+        ObjectDoubleDictionary<Wrapper<Integer>> actual = new ObjectDoubleDictionary<>();
+        for (int i = 0; i < 100000; i++) {
+            int value = random.nextInt(500);
+            Wrapper<Integer> key = new Wrapper<>(value, value % 37);
+            int operation = random.nextInt(3);
+            if (operation == 0) {
+                expected.put(key, expected.getOrDefault(key, 0.0) + i);
+                actual.addTo(key, i);
+            } else if (operation == 1 && expected.containsKey(key)) {
+                assertEquals(expected.remove(key), actual.remove(key));
+            } else {
+                assertEquals(expected.getOrDefault(key, -1.0), actual.getDouble(key, -1.0), 0.0);
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+
+        int count = 0;
+        for (KVPair<Wrapper<Integer>, Double> pair : actual) {
+            assertEquals(expected.get(pair.getKey()), pair.getValue());
+            count++;
+        }
+        assertEquals(expected.size(), count);
+    }
+}
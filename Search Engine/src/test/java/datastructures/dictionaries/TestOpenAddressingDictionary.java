@@ -0,0 +1,67 @@
+package datastructures.dictionaries;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.OpenAddressingDictionary;
+import datastructures.interfaces.IDictionary;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestOpenAddressingDictionary extends TestDictionary {
+    protected <K, V> IDictionary<K, V> newDictionary() {
+        return new OpenAddressingDictionary<>();
+    }
+
+    @Test(timeout=SECOND)
+    public void testManyObjectsWithSameHashCode() {
+        IDictionary<Wrapper<String>, Integer> map = this.newDictionary();
+        for (int i = 0; i < 1000; i++) {
+            map.put(new Wrapper<>("" + i, 0), i);
+        }
+        assertEquals(1000, map.size());
+
+        for (int i = 0; i < 1000; i += 2) {
+            assertEquals(i, map.remove(new Wrapper<>("" + i, 0)));
+        }
+        assertEquals(500, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 1, map.containsKey(new Wrapper<>("" + i, 0)));
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesChainedHashDictionary() {
+        // Few distinct hash codes, so probe sequences run into each other and removals
+        // have to shift many keys back.
+        Random random = new Random(12);
+        IDictionary<Wrapper<Integer>, Integer> expected = new ChainedHashDictionary<>();
+        IDictionary<Wrapper<Integer>, Integer> actual = this.newDictionary();
+        for (int i = 0; i < 100000; i++) {
+            int value = random.nextInt(500);
+            Wrapper<Integer> key = new Wrapper<>(value, value % 37);
+            int operation = random.nextInt(3);
+            if (operation == 0) {
+                expected.put(key, i);
+                actual.put(key, i);
+            } else if (operation == 1 && expected.containsKey(key)) {
+                assertEquals(expected.remove(key), actual.remove(key));
+            } else {
+                assertEquals(expected.getOrDefault(key, -1), actual.getOrDefault(key, -1));
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+
+        int count = 0;
+        for (KVPair<Wrapper<Integer>, Integer> pair : actual) {
+            assertTrue(expected.containsKey(pair.getKey()));
+            assertEquals(expected.get(pair.getKey()), pair.getValue());
+            count++;
+        }
+        assertEquals(expected.size(), count);
+        assertFalse(actual.containsKey(new Wrapper<>(1000, 1000 % 37)));
+    }
+}
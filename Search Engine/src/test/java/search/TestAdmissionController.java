@@ -0,0 +1,84 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.misc.Deadline;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestAdmissionController extends BaseTest {
+    private static final long LONG_WAIT = TimeUnit.SECONDS.toNanos(10);
+
+    @Test(timeout=SECOND)
+    public void testLetsInUpToLimit() {
+        AdmissionController admission = new AdmissionController(2, 0);
+        assertTrue(admission.tryEnter(Deadline.after(LONG_WAIT)));
+        assertTrue(admission.tryEnter(Deadline.after(LONG_WAIT)));
+        assertEquals(2, admission.inFlight());
+
+        // There's no room to wait, so the third search is turned away immediately.
+        assertFalse(admission.tryEnter(Deadline.after(LONG_WAIT)));
+        assertEquals(1, admission.rejected());
+
+        admission.exit();
+        assertEquals(1, admission.inFlight());
+        assertTrue(admission.tryEnter(Deadline.after(LONG_WAIT)));
+    }
+
+    @Test(timeout=SECOND)
+    public void testRejectsWhenDeadlinePassesInQueue() {
+        AdmissionController admission = new AdmissionController(1, 5);
+        assertTrue(admission.tryEnter(Deadline.NONE));
+        assertFalse(admission.tryEnter(Deadline.after(TimeUnit.MILLISECONDS.toNanos(20))));
+        assertEquals(0, admission.queued());
+        assertEquals(1, admission.rejected());
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testQueuedSearchRunsOnceAnotherExits() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(1, 1);
+        assertTrue(admission.tryEnter(Deadline.NONE));
+
+        AtomicBoolean entered = new AtomicBoolean(false);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            entered.set(admission.tryEnter(Deadline.after(LONG_WAIT)));
+            done.countDown();
+        });
+        waiter.start();
+        while (admission.queued() == 0) {
+            Thread.sleep(1);
+        }
+
+        // The queue is now full, so anything else is turned away.
+        assertFalse(admission.tryEnter(Deadline.after(LONG_WAIT)));
+
+        admission.exit();
+        assertTrue(done.await(LONG_WAIT, TimeUnit.NANOSECONDS));
+        assertTrue(entered.get());
+        assertEquals(1, admission.inFlight());
+        assertEquals(0, admission.queued());
+    }
+
+    @Test(timeout=SECOND)
+    public void testInvalidLimits() {
+        try {
+            new AdmissionController(0, 1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+        try {
+            new AdmissionController(1, -1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+}
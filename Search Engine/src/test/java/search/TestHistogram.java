@@ -0,0 +1,161 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.metrics.Histogram;
+import search.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestHistogram extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testEmptyHistogram() {
+        Histogram.Snapshot snapshot = new Histogram().snapshot();
+        assertEquals(0L, snapshot.getCount());
+        assertEquals(0L, snapshot.getSum());
+        assertEquals(0L, snapshot.valueAtQuantile(0.5));
+    }
+
+    @Test(timeout=SECOND)
+    public void testSmallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 20; i++) {
+            histogram.record(i);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(20L, snapshot.getCount());
+        assertEquals(210L, snapshot.getSum());
+        assertEquals(10L, snapshot.valueAtQuantile(0.5));
+        assertEquals(19L, snapshot.valueAtQuantile(0.95));
+        assertEquals(20L, snapshot.valueAtQuantile(1.0));
+        assertEquals(1L, snapshot.valueAtQuantile(0.0));
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testQuantilesAreWithinRelativeError() {
+        Random random = new Random(373);
+        Histogram histogram = new Histogram();
+        long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            // Spread the values over many powers of two, like latencies in nanoseconds.
+            values[i] = (long) Math.exp(random.nextDouble() * 30);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        for (double quantile : new double[] {0.01, 0.25, 0.5, 0.9, 0.99, 0.999, 1.0}) {
+            long expected = values[(int) Math.ceil(quantile * values.length) - 1];
+            long actual = snapshot.valueAtQuantile(quantile);
+            assertTrue(actual >= expected);
+            assertTrue(actual <= expected + expected / 32);
+        }
+        assertEquals(values[values.length - 1], snapshot.getMax());
+    }
+
+    @Test(timeout=SECOND)
+    public void testExtremeValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0L, snapshot.valueAtQuantile(0.5));
+        assertEquals(Long.MAX_VALUE, snapshot.valueAtQuantile(1.0));
+    }
+
+    @Test(timeout=SECOND)
+    public void testOldValuesLeaveTheWindow() {
+        long[] now = {0};
+        Histogram histogram = new Histogram(TimeUnit.SECONDS.toNanos(60), 6, () -> now[0]);
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(1000);
+        }
+        now[0] = TimeUnit.SECONDS.toNanos(30);
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5);
+        }
+
+        // Half a minute later, the old values are still in the window.
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000L, snapshot.valueAtQuantile(0.5));
+        assertEquals(1000L, snapshot.getMax());
+
+        // Once they are more than a minute old, only the newer values are left.
+        now[0] = TimeUnit.SECONDS.toNanos(65);
+        snapshot = histogram.snapshot();
+        assertEquals(5L, snapshot.valueAtQuantile(0.99));
+        assertEquals(5L, snapshot.getMax());
+        assertEquals(1010L, snapshot.getCount());
+        assertEquals(1000050L, snapshot.getSum());
+
+        // Once everything is old, there is nothing left to read quantiles from, but the
+        // count and sum still cover everything ever recorded.
+        now[0] = TimeUnit.MINUTES.toNanos(10);
+        snapshot = histogram.snapshot();
+        assertEquals(0L, snapshot.valueAtQuantile(0.5));
+        assertEquals(1010L, snapshot.getCount());
+
+        // Slots are reused as time moves on.
+        histogram.record(7);
+        assertEquals(7L, histogram.snapshot().valueAtQuantile(0.5));
+    }
+
+    @Test(timeout=SECOND)
+    public void testBadWindowThrowsException() {
+        try {
+            new Histogram(5, 6, System::nanoTime);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testBadQuantileThrowsException() {
+        try {
+            new Histogram().snapshot().valueAtQuantile(1.5);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testPrometheusFormat() throws IOException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("requests_total", "Requests.").add(3);
+        Histogram latency = metrics.latency("latency_seconds", "Latency.", "stage", "score");
+        latency.record(2000000000L);
+        metrics.gauge("phase_seconds", "Phases.", "phase", "build").set(1.5);
+
+        // Asking for a metric again returns the same one.
+        metrics.counter("requests_total", "Requests.").increment();
+        assertTrue(latency == metrics.latency("latency_seconds", "Latency.", "stage", "score"));
+
+        StringWriter out = new StringWriter();
+        metrics.writePrometheus(out);
+        assertEquals(
+                "# HELP requests_total Requests.\n"
+                + "# TYPE requests_total counter\n"
+                + "requests_total 4\n"
+                + "# HELP latency_seconds Latency.\n"
+                + "# TYPE latency_seconds summary\n"
+                + "latency_seconds{stage=\"score\",quantile=\"0.5\"} 2\n"
+                + "latency_seconds{stage=\"score\",quantile=\"0.9\"} 2\n"
+                + "latency_seconds{stage=\"score\",quantile=\"0.99\"} 2\n"
+                + "latency_seconds{stage=\"score\",quantile=\"0.999\"} 2\n"
+                + "latency_seconds_sum{stage=\"score\"} 2\n"
+                + "latency_seconds_count{stage=\"score\"} 1\n"
+                + "# HELP phase_seconds Phases.\n"
+                + "# TYPE phase_seconds gauge\n"
+                + "phase_seconds{phase=\"build\"} 1.5\n",
+                out.toString());
+    }
+}
@@ -0,0 +1,53 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.misc.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class TestJsonWriter extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testEmptyContainers() throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginObject().name("a").beginArray().endArray().name("b").beginObject().endObject()
+                .endObject();
+        assertEquals("{\"a\":[],\"b\":{}}", out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testNestedValues() throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        json.beginArray();
+        for (int i = 0; i < 3; i++) {
+            json.beginObject().name("id").value(i).name("score").value(i / 2.0).name("name").value((String) null)
+                    .endObject();
+        }
+        json.endArray();
+        assertEquals(
+                "[{\"id\":0,\"score\":0.0,\"name\":null},"
+                        + "{\"id\":1,\"score\":0.5,\"name\":null},"
+                        + "{\"id\":2,\"score\":1.0,\"name\":null}]",
+                out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testNonFiniteNumbers() throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginArray().value(Double.NaN).value(Double.POSITIVE_INFINITY).value(-1.5).endArray();
+        assertEquals("[null,null,-1.5]", out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testEscaping() throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginObject()
+                .name("q\"uote").value("a\\b\nc\rd\te\u0001f\u2028g\u00E9\uD83D\uDE00")
+                .endObject();
+        assertEquals(
+                "{\"q\\\"uote\":\"a\\\\b\\nc\\rd\\te\\u0001f\\u2028g\u00E9\uD83D\uDE00\"}",
+                out.toString());
+    }
+}
@@ -0,0 +1,110 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.index.IndexablePage;
+import search.misc.exceptions.DataExtractionException;
+import search.models.Webpage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestPageLoader extends BaseTest {
+    private IList<Path> writePages(Path folder, int numPages) throws IOException {
+        IList<Path> paths = new DoubleLinkedList<>();
+        for (int i = 0; i < numPages; i++) {
+            String page = "<!-- METADATA\n"
+                    + "uri: http://example.com/page-" + i + ".html\n"
+                    + "-->\n"
+                    + "<html><head><title>Page " + i + "</title></head><body>\n"
+                    + "<p>Page number " + i + " links to the next page.</p>\n"
+                    + "<a href=\"page-" + (i + 1) + ".html\">next</a>\n"
+                    + "</body></html>\n";
+            Path path = folder.resolve("page-" + i + ".html");
+            Files.write(path, page.getBytes(StandardCharsets.UTF_8));
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    private void deleteAll(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : files.toArray(Path[]::new)) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(folder);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testEveryPageIsLoadedOnce() throws IOException {
+        Path folder = Files.createTempDirectory("test-page-loader");
+        try {
+            IList<Path> paths = this.writePages(folder, 40);
+            IndexablePage[] pages = new IndexablePage[paths.size()];
+            new PageLoader(3, 2).load(paths, (index, page) -> {
+                assertTrue(pages[index] == null);
+                pages[index] = page;
+            });
+
+            int i = 0;
+            for (Path path : paths) {
+                IndexablePage expected = IndexablePage.of(Webpage.loadOriginal(path.toUri()));
+                assertEquals(expected.getSummary(), pages[i].getSummary());
+                assertEquals(expected.getTerms().getLength(), pages[i].getTerms().getLength());
+                assertEquals(1, pages[i].getLinks().length);
+                assertEquals(URI.create("http://example.com/page-" + (i + 1) + ".html"), pages[i].getLinks()[0]);
+                i++;
+            }
+        } finally {
+            this.deleteAll(folder);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testNoPages() {
+        new PageLoader(2, 1).load(new DoubleLinkedList<>(), (index, page) -> {
+            fail("Expected no pages");
+        });
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testFailureIsRethrown() throws IOException {
+        Path folder = Files.createTempDirectory("test-page-loader");
+        try {
+            IList<Path> paths = this.writePages(folder, 10);
+            paths.insert(5, folder.resolve("missing.html"));
+            new PageLoader(2, 1).load(paths, (index, page) -> { });
+            fail("Expected DataExtractionException");
+        } catch (DataExtractionException ex) {
+            // Do nothing: this is ok
+        } finally {
+            this.deleteAll(folder);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRejectsBadArguments() {
+        try {
+            new PageLoader(0, 1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+        try {
+            new PageLoader(1, 0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+}
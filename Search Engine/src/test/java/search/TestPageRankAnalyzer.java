@@ -0,0 +1,109 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.PageRankAnalyzer;
+import search.index.CsrGraph;
+import search.index.DocumentRegistry;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.fail;
+
+public class TestPageRankAnalyzer extends BaseTest {
+    public static final double DELTA = 0.00001;
+
+    private Webpage buildPage(URI currentPage, URI[] linksTo) {
+        IList<URI> links = new DoubleLinkedList<>();
+        for (URI uri : linksTo) {
+            links.add(uri);
+        }
+        return new Webpage(currentPage, links, new DoubleLinkedList<>(), "title", "blurb");
+    }
+
+    private URI makeUri(int i) {
+        return URI.create("http://example.com/page-" + i + ".html");
+    }
+
+    @Test(timeout=SECOND)
+    public void testIgnoresDuplicateSelfAndExternalLinks() {
+        URI pageAUri = URI.create("http://example.com/page-a.html");
+        URI pageBUri = URI.create("http://example.com/page-b.html");
+        URI outside = URI.create("http://example.com/outside.html");
+
+        ISet<Webpage> messy = new ChainedHashSet<>();
+        messy.add(this.buildPage(pageAUri, new URI[] {pageBUri, pageBUri, pageAUri, outside}));
+        messy.add(this.buildPage(pageBUri, new URI[] {pageAUri, outside}));
+
+        ISet<Webpage> clean = new ChainedHashSet<>();
+        clean.add(this.buildPage(pageAUri, new URI[] {pageBUri}));
+        clean.add(this.buildPage(pageBUri, new URI[] {pageAUri}));
+
+        PageRankAnalyzer messyAnalyzer = new PageRankAnalyzer(messy, 0.85, 0.00001, 100);
+        PageRankAnalyzer cleanAnalyzer = new PageRankAnalyzer(clean, 0.85, 0.00001, 100);
+        assertEquals(cleanAnalyzer.computePageRank(pageAUri), messyAnalyzer.computePageRank(pageAUri), DELTA);
+        assertEquals(cleanAnalyzer.computePageRank(pageBUri), messyAnalyzer.computePageRank(pageBUri), DELTA);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testParallelMatchesSequential() {
+        Random random = new Random(6);
+        int numPages = 5000;
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < numPages; i++) {
+            // Leave some pages without any links, so they're dangling.
+            URI[] links = new URI[random.nextInt(4) == 0 ? 0 : random.nextInt(8)];
+            for (int j = 0; j < links.length; j++) {
+                links[j] = this.makeUri(random.nextInt(numPages));
+            }
+            pages.add(this.buildPage(this.makeUri(i), links));
+        }
+
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        PageRankAnalyzer sequential = new PageRankAnalyzer(pages, registry, 0.85, 0.0000001, 100);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        PageRankAnalyzer parallel = new PageRankAnalyzer(pages, registry, 0.85, 0.0000001, 100, pool);
+        pool.shutdown();
+
+        double total = 0.0;
+        for (int i = 0; i < numPages; i++) {
+            assertEquals(sequential.computePageRank(i), parallel.computePageRank(i), 1e-12);
+            total += parallel.computePageRank(i);
+        }
+        assertEquals(1.0, total, DELTA);
+    }
+
+    @Test(timeout=SECOND)
+    public void testCsrGraphTranspose() {
+        CsrGraph graph = CsrGraph.fromAdjacencyLists(new int[][] {{1, 2}, null, {0, 1}, {}});
+        assertEquals(4, graph.numVertices());
+        assertEquals(4, graph.numEdges());
+        assertEquals(0, graph.degree(1));
+
+        CsrGraph reversed = graph.transpose();
+        assertEquals(4, reversed.numEdges());
+        assertEquals(1, reversed.degree(0));
+        assertEquals(2, reversed.getTarget(reversed.firstEdge(0)));
+        assertEquals(2, reversed.degree(1));
+        assertEquals(0, reversed.getTarget(reversed.firstEdge(1)));
+        assertEquals(2, reversed.getTarget(reversed.firstEdge(1) + 1));
+        assertEquals(0, reversed.degree(3));
+    }
+
+    @Test(timeout=SECOND)
+    public void testCsrGraphRejectsBadOffsets() {
+        try {
+            new CsrGraph(new int[] {0, 2, 1}, new int[] {0});
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.index.PostingsCursor;
+import search.index.PostingsList;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestPostingsList extends BaseTest {
+    private PostingsList makeList(int numPostings, int gap) {
+        PostingsList list = new PostingsList();
+        for (int i = 0; i < numPostings; i++) {
+            list.add(i * gap, i % 300 + 1);
+        }
+        list.finish();
+        return list;
+    }
+
+    @Test(timeout=SECOND)
+    public void testEmptyList() {
+        PostingsList list = new PostingsList();
+        list.finish();
+        PostingsCursor cursor = list.cursor();
+        assertEquals(0, list.size());
+        assertEquals(PostingsCursor.NO_MORE_DOCS, cursor.nextDoc());
+        assertEquals(PostingsCursor.NO_MORE_DOCS, cursor.advance(5));
+    }
+
+    @Test(timeout=SECOND)
+    public void testIterateAcrossBlocks() {
+        int numPostings = 3 * PostingsList.BLOCK_SIZE + 17;
+        PostingsList list = this.makeList(numPostings, 1000);
+        assertEquals(numPostings, list.size());
+
+        PostingsCursor cursor = list.cursor();
+        for (int i = 0; i < numPostings; i++) {
+            assertEquals(i * 1000, cursor.nextDoc());
+            assertEquals(i % 300 + 1, cursor.count());
+        }
+        assertEquals(PostingsCursor.NO_MORE_DOCS, cursor.nextDoc());
+        assertEquals(PostingsCursor.NO_MORE_DOCS, cursor.docId());
+    }
+
+    @Test(timeout=SECOND)
+    public void testAdvance() {
+        PostingsList list = this.makeList(5 * PostingsList.BLOCK_SIZE, 3);
+        PostingsCursor cursor = list.cursor();
+
+        assertEquals(0, cursor.advance(0));
+        assertEquals(6, cursor.advance(5));
+        assertEquals(6, cursor.advance(6));
+        assertEquals(6, cursor.advance(2));
+        assertEquals(3 * 3 * PostingsList.BLOCK_SIZE, cursor.advance(3 * 3 * PostingsList.BLOCK_SIZE - 1));
+        assertEquals(3 * PostingsList.BLOCK_SIZE % 300 + 1, cursor.count());
+        assertEquals(3 * 3 * PostingsList.BLOCK_SIZE + 3, cursor.nextDoc());
+        assertEquals(PostingsCursor.NO_MORE_DOCS, cursor.advance(15 * PostingsList.BLOCK_SIZE));
+    }
+
+    @Test(timeout=SECOND)
+    public void testLargeGapsAndCounts() {
+        PostingsList list = new PostingsList();
+        list.add(0, Integer.MAX_VALUE);
+        list.add(1 << 30, 1);
+        list.add(Integer.MAX_VALUE - 1, 1 << 21);
+        list.finish();
+
+        PostingsCursor cursor = list.cursor();
+        assertEquals(0, cursor.nextDoc());
+        assertEquals(Integer.MAX_VALUE, cursor.count());
+        assertEquals(1 << 30, cursor.nextDoc());
+        assertEquals(Integer.MAX_VALUE - 1, cursor.nextDoc());
+        assertEquals(1 << 21, cursor.count());
+    }
+
+    @Test(timeout=SECOND)
+    public void testCompressesSmallGaps() {
+        PostingsList list = this.makeList(10000, 2);
+        assertTrue(list.sizeInBytes() < 3 * 10000);
+    }
+
+    @Test(timeout=SECOND)
+    public void testRejectsOutOfOrderPostings() {
+        PostingsList list = new PostingsList();
+        list.add(5, 1);
+        try {
+            list.add(5, 1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testCannotReadUnfinishedList() {
+        PostingsList list = new PostingsList();
+        list.add(5, 1);
+        try {
+            list.cursor();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // Do nothing: this is ok
+        }
+    }
+}
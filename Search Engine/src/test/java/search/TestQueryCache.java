@@ -0,0 +1,206 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.models.Result;
+import search.models.WebpageSummary;
+
+import java.net.URI;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestQueryCache extends BaseTest {
+    private IList<String> makeQuery(String... words) {
+        IList<String> query = new DoubleLinkedList<>();
+        for (String word : words) {
+            query.add(word);
+        }
+        return query;
+    }
+
+    /**
+     * A query function that returns k results named after the query's first word, and
+     * counts how often it is called.
+     */
+    private static class CountingFunction implements QueryCache.QueryFunction {
+        private int calls = 0;
+
+        @Override
+        public IList<Result> apply(IList<String> query, int k) {
+            this.calls++;
+            IList<Result> results = new DoubleLinkedList<>();
+            for (int i = 0; i < k; i++) {
+                URI uri = URI.create("http://example.com/" + query.get(0) + "-" + i + ".html");
+                results.add(new Result(new WebpageSummary(uri, "Title", "Blurb"), i));
+            }
+            return results;
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRepeatedQueryIsCached() {
+        QueryCache cache = new QueryCache(10);
+        CountingFunction function = new CountingFunction();
+        IList<Result> first = cache.getOrCompute(this.makeQuery("a", "b"), 3, function);
+        IList<Result> second = cache.getOrCompute(this.makeQuery("a", "b"), 3, function);
+        assertEquals(1, function.calls);
+        assertEquals(1L, cache.hits());
+        assertEquals(1L, cache.misses());
+        assertEquals(3, second.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(first.get(i), second.get(i));
+        }
+
+        // The returned lists are copies, so changing one leaves the cache alone.
+        second.remove();
+        assertEquals(3, cache.getOrCompute(this.makeQuery("a", "b"), 3, function).size());
+        assertEquals(1, function.calls);
+    }
+
+    @Test(timeout=SECOND)
+    public void testDifferentWordsOrCountsAreDifferentEntries() {
+        QueryCache cache = new QueryCache(10);
+        CountingFunction function = new CountingFunction();
+        cache.getOrCompute(this.makeQuery("a", "b"), 3, function);
+        cache.getOrCompute(this.makeQuery("b", "a"), 3, function);
+        cache.getOrCompute(this.makeQuery("a", "b"), 4, function);
+        cache.getOrCompute(this.makeQuery("a"), 3, function);
+        assertEquals(4, function.calls);
+        assertEquals(4, cache.size());
+        assertEquals(0L, cache.hits());
+    }
+
+    @Test(timeout=SECOND)
+    public void testEvictsLeastRecentlyUsed() {
+        QueryCache cache = new QueryCache(2);
+        CountingFunction function = new CountingFunction();
+        cache.getOrCompute(this.makeQuery("a"), 1, function);
+        cache.getOrCompute(this.makeQuery("b"), 1, function);
+        // Using 'a' again makes 'b' the least recently used, so adding 'c' evicts it.
+        cache.getOrCompute(this.makeQuery("a"), 1, function);
+        cache.getOrCompute(this.makeQuery("c"), 1, function);
+        assertEquals(2, cache.size());
+        assertEquals(3, function.calls);
+
+        cache.getOrCompute(this.makeQuery("a"), 1, function);
+        assertEquals(3, function.calls);
+        cache.getOrCompute(this.makeQuery("b"), 1, function);
+        assertEquals(4, function.calls);
+    }
+
+    @Test(timeout=SECOND)
+    public void testInvalidateDropsEverything() {
+        QueryCache cache = new QueryCache(10);
+        CountingFunction function = new CountingFunction();
+        cache.getOrCompute(this.makeQuery("a"), 1, function);
+        cache.invalidate();
+        assertEquals(0, cache.size());
+        cache.getOrCompute(this.makeQuery("a"), 1, function);
+        assertEquals(2, function.calls);
+    }
+
+    @Test(timeout=SECOND)
+    public void testResultsComputedBeforeInvalidateAreNotCached() {
+        QueryCache cache = new QueryCache(10);
+        CountingFunction function = new CountingFunction();
+        IList<Result> results = cache.getOrCompute(this.makeQuery("a"), 2, (query, k) -> {
+            cache.invalidate();
+            return function.apply(query, k);
+        });
+        assertEquals(2, results.size());
+        assertEquals(0, cache.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testFailedQueryIsNotCached() {
+        QueryCache cache = new QueryCache(10);
+        try {
+            cache.getOrCompute(this.makeQuery("a"), 1, (query, k) -> {
+                throw new IllegalStateException();
+            });
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // Do nothing: this is ok
+        }
+        assertEquals(0, cache.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testNegativeKThrowsException() {
+        QueryCache cache = new QueryCache(10);
+        try {
+            cache.getOrCompute(this.makeQuery("a"), -1, new CountingFunction());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testBadCapacityThrowsException() {
+        try {
+            new QueryCache(0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testManyQueriesStayWithinCapacity() {
+        QueryCache cache = new QueryCache(50);
+        CountingFunction function = new CountingFunction();
+        for (int i = 0; i < 1000; i++) {
+            cache.getOrCompute(this.makeQuery("w" + (i % 120)), 1, function);
+            assertTrue(cache.size() <= 50);
+        }
+        assertEquals(1000L, cache.hits() + cache.misses());
+    }
+
+    @Test(timeout=SECOND)
+    public void testRecentQueriesAreMostRecentFirst() {
+        QueryCache cache = new QueryCache(10);
+        CountingFunction function = new CountingFunction();
+        cache.getOrCompute(this.makeQuery("a", "b"), 1, function);
+        cache.getOrCompute(this.makeQuery("c"), 2, function);
+        cache.getOrCompute(this.makeQuery("d"), 3, function);
+        cache.getOrCompute(this.makeQuery("a", "b"), 1, function);
+
+        IList<QueryCache.CachedQuery> recent = cache.recentQueries(2);
+        assertEquals(2, recent.size());
+        assertEquals(2, recent.get(0).getQuery().size());
+        assertEquals("a", recent.get(0).getQuery().get(0));
+        assertEquals("b", recent.get(0).getQuery().get(1));
+        assertEquals(1, recent.get(0).getK());
+        assertEquals("d", recent.get(1).getQuery().get(0));
+        assertEquals(3, recent.get(1).getK());
+
+        assertEquals(3, cache.recentQueries(100).size());
+        cache.invalidate();
+        assertEquals(0, cache.recentQueries(100).size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testPutReplacesCachedResults() {
+        QueryCache cache = new QueryCache(2);
+        CountingFunction function = new CountingFunction();
+        cache.getOrCompute(this.makeQuery("a"), 2, function);
+
+        IList<Result> replacement = function.apply(this.makeQuery("z"), 1);
+        cache.put(this.makeQuery("a"), 2, replacement);
+        assertEquals(1, cache.size());
+        IList<Result> cached = cache.getOrCompute(this.makeQuery("a"), 2, function);
+        assertEquals(1, cached.size());
+        assertEquals(replacement.get(0), cached.get(0));
+        assertEquals(2, function.calls);
+
+        // Putting a new query still respects the capacity.
+        cache.put(this.makeQuery("b"), 1, replacement);
+        cache.put(this.makeQuery("c"), 1, replacement);
+        assertEquals(2, cache.size());
+        assertEquals("c", cache.recentQueries(1).get(0).getQuery().get(0));
+    }
+}
@@ -0,0 +1,241 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.index.IndexablePage;
+import search.misc.Deadline;
+import search.misc.QueryStats;
+import search.models.Result;
+import search.models.Webpage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestSearchIndex extends BaseTest {
+    private static final long FINGERPRINT = 0x1234567890ABCDEFL;
+
+    private URI makeUri(int i) {
+        return URI.create("http://example.com/page-" + i + ".html");
+    }
+
+    private IList<String> randomWords(Random random, int numWords) {
+        IList<String> words = new DoubleLinkedList<>();
+        for (int i = 0; i < numWords; i++) {
+            // Square the random number so some words are much more common than others.
+            double skewed = random.nextDouble() * random.nextDouble();
+            words.add("w" + (int) (skewed * 300));
+        }
+        return words;
+    }
+
+    private ISet<Webpage> makePages(Random random, int numPages) {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < numPages; i++) {
+            IList<URI> links = new DoubleLinkedList<>();
+            for (int j = random.nextInt(5); j > 0; j--) {
+                links.add(this.makeUri(random.nextInt(numPages)));
+            }
+            pages.add(new Webpage(this.makeUri(i), links, this.randomWords(random, 1 + random.nextInt(150)),
+                    "Title " + i + " \u00e9\u4e2d", "Blurb " + i));
+        }
+        return pages;
+    }
+
+    private IndexablePage[] toIndexablePages(ISet<Webpage> webpages) {
+        IndexablePage[] pages = new IndexablePage[webpages.size()];
+        int i = 0;
+        for (Webpage page : webpages) {
+            pages[i] = IndexablePage.of(page);
+            i++;
+        }
+        return pages;
+    }
+
+    private void assertSameTopResults(SearchIndex expected, SearchIndex actual, IList<String> query, int k) {
+        IList<Result> expectedResults = expected.getTopKResults(query, k);
+        IList<Result> actualResults = actual.getTopKResults(query, k);
+        assertEquals(expectedResults.size(), actualResults.size());
+        Iterator<Result> actualIter = actualResults.iterator();
+        for (Result result : expectedResults) {
+            // Pages with tied scores may come out in either order, so we only compare
+            // the scores, and check each page really has the score it came with.
+            Result other = actualIter.next();
+            assertEquals(result.getScore(), other.getScore(), 0.0);
+            assertEquals(actual.computeScore(query, other.getUri()), other.getScore(), 1e-12);
+        }
+    }
+
+    private SearchIndex makeIndex(Random random, int numPages) {
+        return SearchIndex.build(this.makePages(random, numPages), 0.85, 0.0001, 200, null);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testLoadedIndexGivesSameResults() throws IOException {
+        Random random = new Random(7);
+        SearchIndex original = this.makeIndex(random, 300);
+        Path file = Files.createTempFile("test-search-index", ".index");
+        try {
+            original.save(file, FINGERPRINT);
+            SearchIndex loaded = SearchIndex.load(file, FINGERPRINT);
+            assertEquals(original.size(), loaded.size());
+
+            for (int trial = 0; trial < 50; trial++) {
+                IList<String> query = this.randomWords(random, 1 + random.nextInt(4));
+                IList<Result> expected = original.getTopKResults(query, 10);
+                IList<Result> actual = loaded.getTopKResults(query, 10);
+                assertEquals(expected.size(), actual.size());
+                Iterator<Result> actualIter = actual.iterator();
+                for (Result result : expected) {
+                    Result other = actualIter.next();
+                    assertEquals(result.getUri(), other.getUri());
+                    assertEquals(result.getTitle(), other.getTitle());
+                    assertEquals(result.getBlurb(), other.getBlurb());
+                    assertEquals(result.getScore(), other.getScore(), 0.0);
+                    assertEquals(original.computeScore(query, result.getUri()),
+                            loaded.computeScore(query, result.getUri()), 0.0);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testBuildFromIndexablePagesGivesSameScores() {
+        Random random = new Random(10);
+        ISet<Webpage> webpages = this.makePages(random, 300);
+        IndexablePage[] pages = Arrays.copyOf(this.toIndexablePages(webpages), webpages.size() + 1);
+        // A second copy of a page should be ignored.
+        pages[webpages.size()] = pages[0];
+
+        SearchIndex expected = SearchIndex.build(webpages, 0.85, 0.0001, 200, null);
+        SearchIndex actual = SearchIndex.build(pages, 1, 0.85, 0.0001, 200, new ForkJoinPool(4));
+        assertEquals(expected.size(), actual.size());
+        for (int trial = 0; trial < 20; trial++) {
+            IList<String> query = this.randomWords(random, 1 + random.nextInt(4));
+            for (Webpage page : webpages) {
+                assertEquals(expected.computeScore(query, page.getUri()),
+                        actual.computeScore(query, page.getUri()), 1e-12);
+            }
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testShardedIndexGivesSameResults() throws IOException {
+        Random random = new Random(11);
+        IndexablePage[] pages = this.toIndexablePages(this.makePages(random, 300));
+        SearchIndex expected = SearchIndex.build(pages, 1, 0.85, 0.0001, 200, null);
+        SearchIndex sharded = SearchIndex.build(pages, 7, 0.85, 0.0001, 200, null);
+        Path file = Files.createTempFile("test-search-index", ".index");
+        try {
+            sharded.save(file, FINGERPRINT);
+            SearchIndex loaded = SearchIndex.load(file, FINGERPRINT);
+            loaded.setQueryPool(new ForkJoinPool(4));
+            // With a single thread, the tasks searching each part of the index run one
+            // after another, so how many documents they score does not depend on timing.
+            SearchIndex oneThread = SearchIndex.load(file, FINGERPRINT);
+            oneThread.setQueryPool(new ForkJoinPool(1));
+
+            QueryStats expectedStats = new QueryStats();
+            QueryStats shardedStats = new QueryStats();
+            QueryStats oneThreadStats = new QueryStats();
+            for (int trial = 0; trial < 50; trial++) {
+                IList<String> query = this.randomWords(random, 1 + random.nextInt(4));
+                int k = random.nextInt(20);
+                this.assertSameTopResults(expected, sharded, query, k);
+                this.assertSameTopResults(expected, loaded, query, k);
+                this.assertSameTopResults(expected, oneThread, query, k);
+                expected.getTopKResults(query, k, Deadline.NONE, expectedStats);
+                sharded.getTopKResults(query, k, Deadline.NONE, shardedStats);
+                oneThread.getTopKResults(query, k, Deadline.NONE, oneThreadStats);
+            }
+
+            // Searching the shards one after another with a single heap skips exactly the
+            // documents a single shard would.
+            assertEquals(expectedStats.getDocumentsScored(), shardedStats.getDocumentsScored());
+            // Tasks share the lowest score in their top k, so a task does not have to fill
+            // a heap of its own before it can skip documents. Before they did, these
+            // queries scored about 10% more documents than on a single shard.
+            long extra = oneThreadStats.getDocumentsScored() - expectedStats.getDocumentsScored();
+            assertTrue(extra < expectedStats.getDocumentsScored() / 20);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMoreShardsThanPages() {
+        Random random = new Random(12);
+        IndexablePage[] pages = this.toIndexablePages(this.makePages(random, 3));
+        SearchIndex expected = SearchIndex.build(pages, 1, 0.85, 0.0001, 200, null);
+        SearchIndex sharded = SearchIndex.build(pages, 10, 0.85, 0.0001, 200, null);
+        sharded.setQueryPool(new ForkJoinPool(2));
+        for (int trial = 0; trial < 20; trial++) {
+            this.assertSameTopResults(expected, sharded, this.randomWords(random, 2), 5);
+        }
+        this.assertSameTopResults(SearchIndex.build(new IndexablePage[0], 4, 0.85, 0.0001, 200, null),
+                SearchIndex.build(new IndexablePage[0], 1, 0.85, 0.0001, 200, null), this.randomWords(random, 2), 5);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testHugeKOnShardedIndex() {
+        Random random = new Random(13);
+        IndexablePage[] pages = this.toIndexablePages(this.makePages(random, 30));
+        SearchIndex expected = SearchIndex.build(pages, 1, 0.85, 0.0001, 200, null);
+        SearchIndex sharded = SearchIndex.build(pages, 4, 0.85, 0.0001, 200, null);
+        sharded.setQueryPool(new ForkJoinPool(2));
+        for (int trial = 0; trial < 20; trial++) {
+            IList<String> query = this.randomWords(random, 2);
+            IList<Result> results = sharded.getTopKResults(query, Integer.MAX_VALUE);
+            assertEquals(expected.getTopKResults(query, pages.length).size(), results.size());
+            this.assertSameTopResults(expected, sharded, query, Integer.MAX_VALUE);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testLoadRejectsDifferentFingerprint() throws IOException {
+        SearchIndex original = this.makeIndex(new Random(8), 20);
+        Path file = Files.createTempFile("test-search-index", ".index");
+        try {
+            original.save(file, FINGERPRINT);
+            SearchIndex.load(file, FINGERPRINT + 1);
+            fail("Expected IOException");
+        } catch (IOException ex) {
+            // Do nothing: this is ok
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testLoadRejectsTruncatedFile() throws IOException {
+        SearchIndex original = this.makeIndex(new Random(9), 20);
+        Path file = Files.createTempFile("test-search-index", ".index");
+        try {
+            original.save(file, FINGERPRINT);
+            byte[] bytes = Files.readAllBytes(file);
+            byte[] truncated = new byte[bytes.length - 3];
+            System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+            Files.write(file, truncated);
+            SearchIndex.load(file, FINGERPRINT);
+            fail("Expected IOException");
+        } catch (IOException ex) {
+            // Do nothing: this is ok
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.metrics.SlowQueryLog;
+import search.misc.QueryStats;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestSlowQueryLog extends BaseTest {
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private IList<String> makeQuery(String... words) {
+        IList<String> query = new DoubleLinkedList<>();
+        for (String word : words) {
+            query.add(word);
+        }
+        return query;
+    }
+
+    private void deleteAll(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(folder);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testOnlySlowQueriesAreLogged() throws IOException, InterruptedException {
+        Path folder = Files.createTempDirectory("test-slow-query-log");
+        try {
+            Path file = folder.resolve("slow.log");
+            SlowQueryLog log = new SlowQueryLog(file, 100, 1 << 20, 2);
+
+            QueryStats stats = new QueryStats();
+            stats.markComputed();
+            stats.addTokenizeNanos(11);
+            stats.addScoreNanos(22);
+            stats.addTopKNanos(33);
+            stats.addRenderNanos(44);
+            stats.addDocumentsScored(5);
+            assertFalse(log.log("/search", this.makeQuery("fast"), 10, stats, 99 * MILLISECOND));
+            assertTrue(log.log("/search", this.makeQuery("slow", "\"query\""), 10, stats, 100 * MILLISECOND));
+            log.close();
+
+            // Anything logged after closing is ignored.
+            assertFalse(log.log("/search", this.makeQuery("late"), 10, stats, 500 * MILLISECOND));
+
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(1, lines.size());
+            String line = lines.get(0);
+            assertTrue(line.startsWith("{\"time\":\""));
+            assertTrue(line.contains("\"endpoint\":\"/search\",\"query\":\"slow \\\"query\\\"\",\"num_results\":10,"
+                    + "\"cached\":false,\"timed_out\":false,\"documents_scored\":5,\"tokenize_ns\":11,"
+                    + "\"score_ns\":22,\"topk_ns\":33,\"render_ns\":44,\"total_ns\":100000000,\"thread\":\""));
+            assertEquals(1L, log.logged());
+            assertEquals(0L, log.dropped());
+        } finally {
+            this.deleteAll(folder);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testTimedOutQueriesAreMarked() throws IOException, InterruptedException {
+        Path folder = Files.createTempDirectory("test-slow-query-log");
+        try {
+            Path file = folder.resolve("slow.log");
+            SlowQueryLog log = new SlowQueryLog(file, 100, 1 << 20, 2);
+
+            // A query given up on before it was scored has nothing but its tokenize time.
+            QueryStats stats = new QueryStats();
+            stats.addTokenizeNanos(11);
+            assertFalse(log.log("/api/search", this.makeQuery("rejected"), 10, stats, 5 * MILLISECOND, true));
+            assertTrue(log.log("/api/search", this.makeQuery("timeout"), 10, stats, 2000 * MILLISECOND, true));
+            log.close();
+
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(1, lines.size());
+            assertTrue(lines.get(0).contains("\"query\":\"timeout\",\"num_results\":10,\"cached\":false,"
+                    + "\"timed_out\":true,\"documents_scored\":0,\"tokenize_ns\":11,\"score_ns\":0,"));
+        } finally {
+            this.deleteAll(folder);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testLogIsRolledOver() throws IOException, InterruptedException {
+        Path folder = Files.createTempDirectory("test-slow-query-log");
+        try {
+            Path file = folder.resolve("slow.log");
+            // Small enough that every entry ends up in a file of its own.
+            SlowQueryLog log = new SlowQueryLog(file, 0, 10, 2);
+            for (int i = 0; i < 5; i++) {
+                assertTrue(log.log("/search", this.makeQuery("query" + i), 1, new QueryStats(), 0));
+            }
+            log.close();
+
+            assertEquals(5L, log.logged());
+            assertTrue(Files.readAllLines(file).get(0).contains("query4"));
+            assertTrue(Files.readAllLines(folder.resolve("slow.log.1")).get(0).contains("query3"));
+            assertTrue(Files.readAllLines(folder.resolve("slow.log.2")).get(0).contains("query2"));
+            assertFalse(Files.exists(folder.resolve("slow.log.3")));
+        } finally {
+            this.deleteAll(folder);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testBadSettingsThrowException() {
+        try {
+            new SlowQueryLog(null, -1, 10, 1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.index.StringTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.fail;
+
+public class TestStringTable extends BaseTest {
+    private static final String[] STRINGS = {
+        "dog", "cat", "", "caterpillar", "\u00e9clair", "Zebra", "\uD83D\uDE00", "\uFFEE", "ca",
+    };
+
+    @Test(timeout=SECOND)
+    public void testGetReturnsStringsInOrder() {
+        StringTable table = StringTable.of(STRINGS, false);
+        assertEquals(STRINGS.length, table.size());
+        for (int i = 0; i < STRINGS.length; i++) {
+            assertEquals(STRINGS[i], table.get(i));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testIndexOf() {
+        StringTable table = StringTable.of(STRINGS, true);
+        for (int i = 0; i < STRINGS.length; i++) {
+            assertEquals(i, table.indexOf(STRINGS[i]));
+        }
+        assertEquals(-1, table.indexOf("c"));
+        assertEquals(-1, table.indexOf("cats"));
+        assertEquals(-1, table.indexOf("zebra"));
+        assertEquals(-1, table.indexOf("\u00e9"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testIndexOfEmptyTable() {
+        StringTable table = StringTable.of(new String[0], true);
+        assertEquals(0, table.size());
+        assertEquals(-1, table.indexOf("anything"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testIndexOfRequiresSearchableTable() {
+        StringTable table = StringTable.of(STRINGS, false);
+        try {
+            table.indexOf("dog");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testReadBackFromBuffer() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(42);
+            StringTable.of(STRINGS, true).writeTo(out);
+            out.writeInt(43);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        assertEquals(42, buffer.getInt());
+        StringTable table = StringTable.readFrom(buffer);
+        assertEquals(43, buffer.getInt());
+        for (int i = 0; i < STRINGS.length; i++) {
+            assertEquals(STRINGS[i], table.get(i));
+            assertEquals(i, table.indexOf(STRINGS[i]));
+        }
+    }
+}
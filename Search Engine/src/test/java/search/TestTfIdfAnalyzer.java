@@ -0,0 +1,237 @@
+package search;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.PreparedQuery;
+import search.analyzers.TfIdfAnalyzer;
+import search.index.DocumentBoosts;
+import search.index.DocumentRegistry;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestTfIdfAnalyzer extends BaseTest {
+    public static final double DELTA = 0.000001;
+
+    private static final URI PAGE_A = URI.create("http://example.com/fake-page-a.html");
+    private static final URI PAGE_B = URI.create("http://example.com/fake-page-b.html");
+    private static final URI PAGE_C = URI.create("http://example.com/fake-page-c.html");
+
+    private IList<String> strToIList(String input) {
+        IList<String> output = new DoubleLinkedList<>();
+        for (String word : input.split(" ")) {
+            output.add(word);
+        }
+        return output;
+    }
+
+    private Webpage buildPage(URI uri, String words) {
+        return new Webpage(uri, new DoubleLinkedList<>(), strToIList(words), "title", "blurb");
+    }
+
+    private ISet<Webpage> makeExamplePages() {
+        ISet<Webpage> documents = new ChainedHashSet<>();
+        documents.add(buildPage(PAGE_A, "the mouse played with the cat"));
+        documents.add(buildPage(PAGE_B, "the quick brown fox jumped over the lazy dog"));
+        documents.add(buildPage(PAGE_C, "dog 1 and dog 2 ate the hot dog"));
+        return documents;
+    }
+
+    private TfIdfAnalyzer makeExampleAnalyzer() {
+        return new TfIdfAnalyzer(this.makeExamplePages());
+    }
+
+    private IDictionary<URI, Double> computeRelevanceScores(TfIdfAnalyzer analyzer, IList<String> query) {
+        DocumentRegistry registry = new DocumentRegistry(this.makeExamplePages());
+        IDictionary<URI, Double> scores = new ChainedHashDictionary<>();
+        analyzer.computeTopScores(query, registry.size(), DocumentBoosts.uniform(registry.size()),
+            (docId, score) -> scores.put(registry.getUri(docId), score));
+        return scores;
+    }
+
+    @Test(timeout=SECOND)
+    public void testRelevanceScoresMatchComputeRelevance() {
+        TfIdfAnalyzer analyzer = this.makeExampleAnalyzer();
+        IList<String> query = strToIList("the 1 cat cat dog");
+
+        IDictionary<URI, Double> scores = this.computeRelevanceScores(analyzer, query);
+        assertEquals(3, scores.size());
+        for (URI uri : new URI[] {PAGE_A, PAGE_B, PAGE_C}) {
+            assertEquals(analyzer.computeRelevance(query, uri), scores.get(uri), DELTA);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRelevanceScoresOnlyContainMatchingPages() {
+        TfIdfAnalyzer analyzer = this.makeExampleAnalyzer();
+
+        IDictionary<URI, Double> scores = this.computeRelevanceScores(analyzer, strToIList("mouse fox"));
+        assertEquals(2, scores.size());
+        assertTrue(scores.containsKey(PAGE_A));
+        assertTrue(scores.containsKey(PAGE_B));
+        assertFalse(scores.containsKey(PAGE_C));
+    }
+
+    @Test(timeout=SECOND)
+    public void testRelevanceScoresUnknownWords() {
+        TfIdfAnalyzer analyzer = this.makeExampleAnalyzer();
+
+        assertTrue(this.computeRelevanceScores(analyzer, strToIList("zebra giraffe")).isEmpty());
+        assertTrue(this.computeRelevanceScores(analyzer, new DoubleLinkedList<>()).isEmpty());
+    }
+
+    @Test(timeout=SECOND)
+    public void testTopScoresInDecreasingOrder() {
+        TfIdfAnalyzer analyzer = this.makeExampleAnalyzer();
+        double[] last = {Double.POSITIVE_INFINITY};
+        int[] count = {0};
+        analyzer.computeTopScores(strToIList("cat dog"), 2, DocumentBoosts.uniform(3), (docId, score) -> {
+            assertTrue(score <= last[0]);
+            last[0] = score;
+            count[0]++;
+        });
+        assertEquals(2, count[0]);
+    }
+
+    @Test(timeout=SECOND)
+    public void testHugeKReturnsEveryMatch() {
+        TfIdfAnalyzer analyzer = this.makeExampleAnalyzer();
+        int[] count = {0};
+        analyzer.computeTopScores(strToIList("cat dog"), Integer.MAX_VALUE, DocumentBoosts.uniform(3),
+            (docId, score) -> count[0]++);
+        assertEquals(3, count[0]);
+
+        count[0] = 0;
+        analyzer.computeTopScores(analyzer.prepare(strToIList("cat dog")), Integer.MAX_VALUE,
+            DocumentBoosts.uniform(3), new ForkJoinPool(2), (docId, score) -> count[0]++);
+        assertEquals(3, count[0]);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testTopScoresMatchExhaustiveScoring() {
+        Random random = new Random(373);
+        int numPages = 600;
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < numPages; i++) {
+            StringBuilder words = new StringBuilder("w0");
+            int length = random.nextInt(60);
+            for (int j = 0; j < length; j++) {
+                words.append(" w").append((int) Math.abs(random.nextGaussian() * 40));
+            }
+            pages.add(buildPage(URI.create("http://example.com/" + i), words.toString()));
+        }
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        TfIdfAnalyzer analyzer = new TfIdfAnalyzer(pages, registry);
+
+        double[] boostValues = new double[numPages];
+        for (int i = 0; i < numPages; i++) {
+            boostValues[i] = random.nextDouble();
+        }
+        DocumentBoosts boosts = new DocumentBoosts(boostValues);
+
+        for (int trial = 0; trial < 50; trial++) {
+            IList<String> query = strToIList("w" + random.nextInt(80) + " w" + random.nextInt(20) + " w0");
+            double[] expected = new double[numPages];
+            for (int i = 0; i < numPages; i++) {
+                URI uri = registry.getUri(i);
+                expected[i] = -analyzer.computeRelevance(query, uri) * boosts.get(i);
+            }
+            Arrays.sort(expected);
+
+            int k = 1 + random.nextInt(20);
+            int[] index = {0};
+            analyzer.computeTopScores(query, k, boosts, (docId, score) -> {
+                assertEquals(-expected[index[0]], score, DELTA);
+                index[0]++;
+            });
+            assertEquals(k, index[0]);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testPreparedQueryMatchesComputeRelevance() {
+        TfIdfAnalyzer analyzer = this.makeExampleAnalyzer();
+        IList<String> query = strToIList("the 1 cat cat dog zebra");
+        PreparedQuery prepared = analyzer.prepare(query);
+        assertEquals(4, prepared.numTerms());
+        for (URI uri : new URI[] {PAGE_A, PAGE_B, PAGE_C}) {
+            assertEquals(analyzer.computeRelevance(query, uri), analyzer.computeRelevance(prepared, uri), DELTA);
+        }
+
+        PreparedQuery unknown = analyzer.prepare(strToIList("zebra giraffe"));
+        assertEquals(0, unknown.numTerms());
+        assertEquals(0.0, unknown.norm(), 0.0);
+        assertEquals(0.0, analyzer.computeRelevance(unknown, PAGE_A), 0.0);
+    }
+
+    @Test(timeout=SECOND)
+    public void testPreparedQueryFromOtherAnalyzerThrowsException() {
+        TfIdfAnalyzer analyzer = this.makeExampleAnalyzer();
+        PreparedQuery prepared = this.makeExampleAnalyzer().prepare(strToIList("cat dog"));
+        try {
+            analyzer.computeRelevance(prepared, PAGE_A);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+        try {
+            analyzer.computeTopScores(prepared, 1, DocumentBoosts.uniform(3), null, (docId, score) -> { });
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRegistryAssignsDenseIds() {
+        DocumentRegistry registry = new DocumentRegistry(this.makeExamplePages());
+        assertEquals(3, registry.size());
+
+        boolean[] seen = new boolean[3];
+        for (URI uri : new URI[] {PAGE_A, PAGE_B, PAGE_C}) {
+            int id = registry.getId(uri);
+            assertFalse(seen[id]);
+            seen[id] = true;
+            assertEquals(uri, registry.getUri(id));
+        }
+        assertEquals(registry.getId(PAGE_B), registry.register(buildPage(PAGE_B, "dup").getSummary()));
+        assertEquals(3, registry.size());
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testParallelBuildMatchesSequentialBuild() {
+        Random random = new Random(143);
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder words = new StringBuilder("w0");
+            for (int j = random.nextInt(40); j > 0; j--) {
+                words.append(" w").append(random.nextInt(500));
+            }
+            pages.add(buildPage(URI.create("http://example.com/" + i), words.toString()));
+        }
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        TfIdfAnalyzer sequential = new TfIdfAnalyzer(pages, registry);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        TfIdfAnalyzer parallel = new TfIdfAnalyzer(pages, registry, pool);
+        pool.shutdown();
+
+        IList<String> query = strToIList("w1 w2 w3 w0 w499");
+        for (int i = 0; i < registry.size(); i++) {
+            URI uri = registry.getUri(i);
+            assertEquals(sequential.computeRelevance(query, uri), parallel.computeRelevance(query, uri), DELTA);
+        }
+    }
+}
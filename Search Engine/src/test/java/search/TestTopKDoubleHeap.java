@@ -0,0 +1,155 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.index.SharedThreshold;
+import search.index.TopKDoubleHeap;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestTopKDoubleHeap extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testKeepsHighestScoresInOrder() {
+        TopKDoubleHeap heap = new TopKDoubleHeap(3);
+        assertEquals(Double.NEGATIVE_INFINITY, heap.threshold(), 0.0);
+        assertTrue(heap.offer(0, 0.5));
+        assertTrue(heap.offer(1, 0.1));
+        assertTrue(heap.offer(2, 0.9));
+        assertEquals(0.1, heap.threshold(), 0.0);
+        assertFalse(heap.offer(3, 0.1));
+        assertTrue(heap.offer(4, 0.7));
+        assertEquals(0.5, heap.threshold(), 0.0);
+
+        int[] docIds = new int[3];
+        double[] scores = new double[3];
+        int[] count = {0};
+        heap.drainDescending((docId, score) -> {
+            docIds[count[0]] = docId;
+            scores[count[0]] = score;
+            count[0]++;
+        });
+        assertEquals(3, count[0]);
+        assertEquals(2, docIds[0]);
+        assertEquals(4, docIds[1]);
+        assertEquals(0, docIds[2]);
+        assertEquals(0.9, scores[0], 0.0);
+        assertEquals(0, heap.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testZeroCapacityKeepsNothing() {
+        TopKDoubleHeap heap = new TopKDoubleHeap(0);
+        assertFalse(heap.offer(0, 1.0));
+        heap.drainDescending((docId, score) -> fail("Expected no documents"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testHugeCapacityKeepsEverything() {
+        TopKDoubleHeap heap = new TopKDoubleHeap(Integer.MAX_VALUE);
+        assertEquals(Double.NEGATIVE_INFINITY, heap.threshold(), 0.0);
+        for (int docId = 0; docId < 100; docId++) {
+            assertTrue(heap.offer(docId, docId / 10.0));
+        }
+        assertEquals(100, heap.size());
+        assertEquals(Double.NEGATIVE_INFINITY, heap.threshold(), 0.0);
+
+        int[] count = {0};
+        heap.drainDescending((docId, score) -> {
+            assertEquals(99 - count[0], docId);
+            count[0]++;
+        });
+        assertEquals(100, count[0]);
+    }
+
+    @Test(timeout=SECOND)
+    public void testNegativeCapacityThrowsException() {
+        try {
+            new TopKDoubleHeap(-1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testAddAllMergesHeaps() {
+        TopKDoubleHeap first = new TopKDoubleHeap(3);
+        first.offer(0, 0.2);
+        first.offer(1, 0.8);
+        TopKDoubleHeap second = new TopKDoubleHeap(3);
+        second.offer(2, 0.5);
+        second.offer(3, 0.9);
+        second.offer(4, 0.1);
+        first.addAll(second);
+        assertEquals(3, first.size());
+        assertEquals(3, second.size());
+
+        int[] expected = {3, 1, 2};
+        int[] count = {0};
+        first.drainDescending((docId, score) -> {
+            assertEquals(expected[count[0]], docId);
+            count[0]++;
+        });
+        assertEquals(3, count[0]);
+    }
+
+    @Test(timeout=SECOND)
+    public void testSharedThresholdOnlyRises() {
+        SharedThreshold shared = new SharedThreshold(2);
+        assertEquals(Double.NEGATIVE_INFINITY, shared.get(), 0.0);
+
+        // A heap with fewer than k documents says nothing about the overall top k, even
+        // if it has no room for more.
+        TopKDoubleHeap small = new TopKDoubleHeap(1);
+        small.offer(0, 0.9);
+        shared.update(small);
+        assertEquals(Double.NEGATIVE_INFINITY, shared.get(), 0.0);
+
+        TopKDoubleHeap first = new TopKDoubleHeap(2);
+        first.offer(1, 0.5);
+        first.offer(2, 0.7);
+        shared.update(first);
+        assertEquals(0.5, shared.get(), 0.0);
+
+        TopKDoubleHeap second = new TopKDoubleHeap(2);
+        second.offer(3, 0.1);
+        second.offer(4, 0.2);
+        shared.update(second);
+        assertEquals(0.5, shared.get(), 0.0);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testMatchesSorting() {
+        Random random = new Random(16);
+        for (int trial = 0; trial < 200; trial++) {
+            int numDocs = random.nextInt(300);
+            int k = random.nextInt(40);
+            double[] allScores = new double[numDocs];
+            TopKDoubleHeap heap = new TopKDoubleHeap(k);
+            for (int docId = 0; docId < numDocs; docId++) {
+                // Round the scores so there are plenty of ties.
+                allScores[docId] = random.nextInt(50) / 10.0;
+                heap.offer(docId, allScores[docId]);
+            }
+
+            double[] expected = allScores.clone();
+            Arrays.sort(expected);
+            int expectedSize = Math.min(k, numDocs);
+            double[] previous = {Double.POSITIVE_INFINITY};
+            int[] count = {0};
+            heap.drainDescending((docId, score) -> {
+                assertEquals(allScores[docId], score, 0.0);
+                assertEquals(expected[numDocs - 1 - count[0]], score, 0.0);
+                assertTrue(score <= previous[0]);
+                previous[0] = score;
+                count[0]++;
+            });
+            assertEquals(expectedSize, count[0]);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package search;
+
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.models.Webpage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertTrue;
+
+public class TestWebpageCache extends BaseTest {
+    private static final String PAGE =
+            "<!-- METADATA\n"
+            + "uri: http://example.com/dir/page.html\n"
+            + "-->\n"
+            + "<html><head><title>A test page</title></head><body>\n"
+            + "<p>The quick brown fox jumps over the lazy dog. The dog sleeps.</p>\n"
+            + "<a href=\"other.html\">other</a> <a href=\"/root.html\">root</a> <a href=\"other.html\">again</a>\n"
+            + "</body></html>\n";
+
+    private <T> void assertSameItems(IList<T> expected, IList<T> actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<T> actualIter = actual.iterator();
+        for (T item : expected) {
+            assertEquals(item, actualIter.next());
+        }
+    }
+
+    private void assertSamePage(Webpage expected, Webpage actual) {
+        assertEquals(expected.getUri(), actual.getUri());
+        assertEquals(expected.getSummary(), actual.getSummary());
+        this.assertSameItems(expected.getWords(), actual.getWords());
+        this.assertSameItems(expected.getLinks(), actual.getLinks());
+    }
+
+    private void deleteAll(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : files.toArray(Path[]::new)) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(folder);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testCachedPageMatchesOriginal() throws IOException {
+        Path folder = Files.createTempDirectory("test-webpage-cache");
+        try {
+            Path html = folder.resolve("page.html");
+            Files.write(html, PAGE.getBytes(StandardCharsets.UTF_8));
+            URI localUri = html.toUri();
+
+            Webpage original = Webpage.loadOriginal(localUri);
+            Webpage first = Webpage.load(localUri);
+            assertTrue(Files.exists(folder.resolve("page.cache")));
+            Webpage second = Webpage.load(localUri);
+
+            this.assertSamePage(original, first);
+            this.assertSamePage(original, second);
+        } finally {
+            this.deleteAll(folder);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testOldTextCacheIsRegenerated() throws IOException {
+        Path folder = Files.createTempDirectory("test-webpage-cache");
+        try {
+            Path html = folder.resolve("page.html");
+            Files.write(html, PAGE.getBytes(StandardCharsets.UTF_8));
+            Path cache = folder.resolve("page.cache");
+            String oldCache = "http://example.com/dir/page.html\nStale title\nStale blurb\nstale words \n";
+            Files.write(cache, oldCache.getBytes(StandardCharsets.UTF_8));
+
+            Webpage loaded = Webpage.load(html.toUri());
+            this.assertSamePage(Webpage.loadOriginal(html.toUri()), loaded);
+            assertTrue(!new String(Files.readAllBytes(cache), StandardCharsets.UTF_8).startsWith("http"));
+            this.assertSamePage(loaded, Webpage.load(html.toUri()));
+        } finally {
+            this.deleteAll(folder);
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testCacheWithHugeCountIsRegenerated() throws IOException {
+        Path folder = Files.createTempDirectory("test-webpage-cache");
+        try {
+            Path html = folder.resolve("page.html");
+            Files.write(html, PAGE.getBytes(StandardCharsets.UTF_8));
+            Path cache = folder.resolve("page.cache");
+            Webpage original = Webpage.load(html.toUri());
+
+            // Skip the magic number, the version, and the uri, title and blurb, then
+            // claim the table of distinct words holds as many as an int allows.
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(cache));
+            bytes.position(2 * Integer.BYTES);
+            for (int i = 0; i < 3; i++) {
+                int length = bytes.getInt();
+                bytes.position(bytes.position() + length);
+            }
+            bytes.putInt(Integer.MAX_VALUE);
+            Files.write(cache, bytes.array());
+
+            this.assertSamePage(original, Webpage.load(html.toUri()));
+            this.assertSamePage(original, Webpage.load(html.toUri()));
+        } finally {
+            this.deleteAll(folder);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package search;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.misc.WordTokenizer;
+
+import java.util.Iterator;
+import java.util.Random;
+
+public class TestWordTokenizer extends BaseTest {
+    // A mix of letters, digits, punctuation, every kind of whitespace the tokenizer splits
+    // on, whitespace it does not split on, and characters whose lowercase form is unusual.
+    private static final String ALPHABET =
+            "aZq09 \t\n\u000B\f\r.,!'-_~\\\"@" + "\u00A0\u2003\u00C9\u00E9\u0130\u03A3\u03C3\u212A\u00DF\uD83D\uDE00";
+
+    // The tokenizer this one replaces: it must produce exactly the same words.
+    private IList<String> extractWithRegex(String input) {
+        IList<String> out = new DoubleLinkedList<>();
+        for (String word : input.toLowerCase().split("\\s+")) {
+            word = word.replaceAll("\\p{Punct}", "");
+            if (!word.isEmpty()) {
+                out.add(word);
+            }
+        }
+        return out;
+    }
+
+    private void assertSameWords(String input) {
+        IList<String> expected = this.extractWithRegex(input);
+        IList<String> actual = WordTokenizer.extract(input);
+        assertEquals(expected.size(), actual.size());
+        Iterator<String> actualIter = actual.iterator();
+        for (String word : expected) {
+            assertEquals(word, actualIter.next());
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testBasicText() {
+        this.assertSameWords("");
+        this.assertSameWords("   ");
+        this.assertSameWords("Hello, World!");
+        this.assertSameWords("  The quick\tbrown\n\nfox -- jumps (over) the 'lazy' dog.  ");
+        this.assertSameWords("e-mail don't U.S.A. 3.14 C++ ... !!!");
+        this.assertSameWords("ODYSSEY \u039F\u0394\u03A5\u03A3\u03A3\u0395\u03A5\u03A3 "
+                + "\u0130stanbul \u212Aelvin Stra\u00DFe");
+    }
+
+    @Test(timeout=SECOND)
+    public void testLongWord() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append((char) ('A' + i % 26));
+        }
+        this.assertSameWords(builder.toString() + " x " + builder.toString() + "\u00C9");
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testRandomText() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 2000; trial++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int i = 0; i < length; i++) {
+                builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            this.assertSameWords(builder.toString());
+        }
+    }
+}